@@ -0,0 +1,66 @@
+package com.example.purchase.client;
+
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of recorded rates_of_exchange responses: a single-currency lookup response (newest first, as used
+ * by rate lookups) and a 1000-row ingestion page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreasuryResponseParserBenchmark {
+
+    private TreasuryResponseParser parser;
+    private byte[] lookupResponse;
+    private byte[] ingestionPage;
+
+    @Setup
+    public void setUp() throws IOException {
+        parser = new TreasuryResponseParser(new ObjectMapper().getFactory());
+        lookupResponse = fixture("rates-canada-dollar.json");
+        ingestionPage = fixture("rates-page-1000.json");
+    }
+
+    /**
+     * A single-date lookup; the answer is the first in-range row.
+     */
+    @Benchmark
+    public List<ExchangeRate> latestRateOnOrBefore() throws IOException {
+        return parser.readRates(new ByteArrayInputStream(lookupResponse),
+                LocalDate.of(2019, 8, 15).minusMonths(6), LocalDate.of(2019, 8, 15), 1);
+    }
+
+    /**
+     * A quarterly window load, reading every row down to the start of the window.
+     */
+    @Benchmark
+    public List<ExchangeRate> rateWindow() throws IOException {
+        return parser.readRates(new ByteArrayInputStream(lookupResponse),
+                LocalDate.of(2019, 1, 1), LocalDate.of(2019, 9, 30), Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public RatesPage ingestionPage() throws IOException {
+        return parser.readPage(new ByteArrayInputStream(ingestionPage));
+    }
+
+    static byte[] fixture(String name) throws IOException {
+        try (InputStream in = TreasuryResponseParserBenchmark.class.getResourceAsStream("/fixtures/" + name)) {
+            return Objects.requireNonNull(in, name).readAllBytes();
+        }
+    }
+}
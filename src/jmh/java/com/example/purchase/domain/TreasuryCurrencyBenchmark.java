@@ -0,0 +1,43 @@
+package com.example.purchase.domain;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Currency lookups done on every conversion request and by the currency validator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreasuryCurrencyBenchmark {
+
+    // Common, rare and unknown codes, in the mixed case clients send
+    private final String[] codes = { "CAD", "eur", "Mxn", "ZWL", "XXX", "usd", "JPY", "gbp" };
+    private final String[] descs = { "Canada-Dollar", "Euro Zone-Euro", "mexico-peso", "Zimbabwe-Rtgs", "Nowhere-Coin" };
+
+    @Benchmark
+    public void fromCode(Blackhole bh) {
+        for (String code : codes) {
+            bh.consume(TreasuryCurrency.fromCode(code));
+        }
+    }
+
+    @Benchmark
+    public void descForCode(Blackhole bh) {
+        for (String code : codes) {
+            bh.consume(TreasuryCurrency.descForCode(code));
+        }
+    }
+
+    @Benchmark
+    public void fromDesc(Blackhole bh) {
+        for (String desc : descs) {
+            bh.consume(TreasuryCurrency.fromDesc(desc));
+        }
+    }
+}
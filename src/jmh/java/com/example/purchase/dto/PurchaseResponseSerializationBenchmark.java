@@ -0,0 +1,53 @@
+package com.example.purchase.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a converted purchase: with the Jackson 3 mapper Spring MVC writes responses with, and
+ * with the application's Jackson 2 mapper used by the export stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PurchaseResponseSerializationBenchmark {
+
+    private JsonMapper mvcMapper;
+    private ObjectMapper appMapper;
+    private PurchaseResponse response;
+
+    @Setup
+    public void setUp() {
+        mvcMapper = JsonMapper.builder().build();
+        appMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        response = new PurchaseResponse();
+        response.setId(123456L);
+        response.setDescription("Office chairs for the third floor");
+        response.setTransactionDate(LocalDate.of(2024, 11, 18));
+        response.setAmountUsd(new BigDecimal("1249.99"));
+        response.setTargetCurrency("CAD");
+        response.setExchangeRate(new BigDecimal("1.398000"));
+        response.setConvertedAmount(new BigDecimal("1747.49"));
+    }
+
+    @Benchmark
+    public byte[] jackson3() {
+        return mvcMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] jackson2() throws JsonProcessingException {
+        return appMapper.writeValueAsBytes(response);
+    }
+}
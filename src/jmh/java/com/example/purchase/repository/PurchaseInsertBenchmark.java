@@ -0,0 +1,85 @@
+package com.example.purchase.repository;
+
+import com.example.purchase.entity.Purchase;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting purchases with Hibernate over an in-memory H2 database, with the JDBC batching settings of
+ * {@code application.properties}: one transaction per purchase, as {@code POST /purchases} does, against one
+ * transaction per chunk of {@code purchase.bulk.chunk-size} purchases, as {@code PurchaseBulkService} does.
+ * Scores are per purchase. Daily totals are left out of both.
+ * <p>
+ * H2 runs in process, so a statement or commit costs no network round trip; against PostgreSQL, where each one
+ * does, the chunked path gains more than it does here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PurchaseInsertBenchmark {
+
+    private static final int CHUNK = 500;
+
+    private HikariDataSource dataSource;
+    private EntityManagerFactory factory;
+    private EntityManager entityManager;
+    private long next;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:purchase-insert;DB_CLOSE_DELAY=-1");
+        Configuration configuration = new Configuration().addAnnotatedClass(Purchase.class);
+        configuration.getProperties().put("hibernate.connection.datasource", dataSource);
+        configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        configuration.setProperty("hibernate.jdbc.batch_size", String.valueOf(CHUNK));
+        configuration.setProperty("hibernate.order_inserts", "true");
+        factory = configuration.buildSessionFactory();
+        entityManager = factory.createEntityManager();
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        factory.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK)
+    public void singleInserts() {
+        for (int i = 0; i < CHUNK; i++) {
+            entityManager.getTransaction().begin();
+            entityManager.persist(nextPurchase());
+            entityManager.getTransaction().commit();
+            entityManager.clear();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK)
+    public void chunkedInserts() {
+        entityManager.getTransaction().begin();
+        for (int i = 0; i < CHUNK; i++) {
+            entityManager.persist(nextPurchase());
+        }
+        entityManager.flush();
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+    }
+
+    private Purchase nextPurchase() {
+        long i = next++;
+        return new Purchase("purchase " + i, LocalDate.of(2024, 1, 1).plusDays(i % 365), new BigDecimal(i % 5000 + ".99"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.purchase.repository;
+
+import com.example.purchase.entity.Purchase;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading one purchase by id through {@link PurchaseRepository} on an in-memory H2 database: as a managed entity
+ * ({@code findById}, the conversion read path before {@link PurchaseView}), as a view selected by a JPQL
+ * constructor expression, and as a view read over JDBC ({@code findViewById}). The persistence context is
+ * cleared after every load, as it would be at the end of a request. Run with {@code -prof gc} to compare the
+ * allocation per load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PurchaseReadBenchmark {
+
+    private static final int PURCHASES = 1024;
+
+    private HikariDataSource dataSource;
+    private EntityManagerFactory factory;
+    private EntityManager entityManager;
+    private PurchaseRepository repository;
+    private long next;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:purchase-read;DB_CLOSE_DELAY=-1");
+        Configuration configuration = new Configuration().addAnnotatedClass(Purchase.class);
+        configuration.getProperties().put("hibernate.connection.datasource", dataSource);
+        configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        factory = configuration.buildSessionFactory();
+        entityManager = factory.createEntityManager();
+
+        entityManager.getTransaction().begin();
+        for (long i = 0; i < PURCHASES; i++) {
+            entityManager.persist(new Purchase("purchase " + i, LocalDate.of(2024, 1, 1).plusDays(i % 365),
+                    new BigDecimal(i % 5000 + ".99")));
+        }
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+
+        repository = new JpaRepositoryFactory(entityManager).getRepository(PurchaseRepository.class,
+                RepositoryFragments.just(new PurchaseViewQueriesImpl(JdbcClient.create(dataSource))));
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        factory.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Purchase entity() {
+        Purchase p = repository.findById(nextId()).orElseThrow();
+        entityManager.clear();
+        return p;
+    }
+
+    @Benchmark
+    public PurchaseView jpqlView() {
+        PurchaseView p = entityManager.createQuery("select new com.example.purchase.repository.PurchaseView("
+                        + "p.id, p.description, p.transactionDate, p.amountUsd) from Purchase p where p.id = :id", PurchaseView.class)
+                .setParameter("id", nextId())
+                .getSingleResult();
+        entityManager.clear();
+        return p;
+    }
+
+    @Benchmark
+    public PurchaseView view() {
+        return repository.findViewById(nextId()).orElseThrow();
+    }
+
+    // Ids come from the pooled sequence, which starts at 1
+    private long nextId() {
+        return next++ % PURCHASES + 1;
+    }
+}
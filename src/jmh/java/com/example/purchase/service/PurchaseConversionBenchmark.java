@@ -0,0 +1,81 @@
+package com.example.purchase.service;
+
+import com.example.purchase.client.TreasuryClient;
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.PurchaseResponse;
+import com.example.purchase.repository.PurchaseRepository;
+import com.example.purchase.repository.PurchaseView;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PurchaseService#getPurchaseConverted} with an in-memory repository and a rate client that answers
+ * immediately, so only the service's own work is measured, with and without the response cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PurchaseConversionBenchmark {
+
+    private static final int PURCHASES = 1024;
+
+    private PurchaseService service;
+    private PurchaseService cachedService;
+    private long next;
+
+    @Setup
+    public void setUp() {
+        Map<Long, PurchaseView> purchases = new HashMap<>();
+        for (long id = 0; id < PURCHASES; id++) {
+            purchases.put(id, new PurchaseView(id, "purchase " + id, LocalDate.of(2024, 1, 1).plusDays(id % 365),
+                    new BigDecimal(id % 5000 + ".99")));
+        }
+        ExchangeRate rate = new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("1.325"));
+        TreasuryClient rates = (date, currency) -> Optional.of(rate);
+        // A zero-size cache keeps nothing, so every call does the full conversion; nothing is created, so no daily totals
+        service = new PurchaseService(inMemoryRepository(purchases), null, rates, Runnable::run, 16, new ConvertedPurchaseCache(0, Clock.systemDefaultZone(), 30, Duration.ofMinutes(5)), ObservationRegistry.NOOP);
+        cachedService = new PurchaseService(inMemoryRepository(purchases), null, rates, Runnable::run, 16, new ConvertedPurchaseCache(PURCHASES, Clock.systemDefaultZone(), 30, Duration.ofMinutes(5)), ObservationRegistry.NOOP);
+    }
+
+    @Benchmark
+    public PurchaseResponse convert() {
+        return service.getPurchaseConverted(next++ % PURCHASES, TreasuryCurrency.CANADA_DOLLAR);
+    }
+
+    @Benchmark
+    public PurchaseResponse convertCached() {
+        return cachedService.getPurchaseConverted(next++ % PURCHASES, TreasuryCurrency.CANADA_DOLLAR);
+    }
+
+    @Benchmark
+    public PurchaseResponse usd() {
+        return service.getPurchaseConverted(next++ % PURCHASES, TreasuryCurrency.UNITED_STATES_DOLLAR);
+    }
+
+    /**
+     * A repository that only supports findViewById, backed by a map.
+     */
+    private static PurchaseRepository inMemoryRepository(Map<Long, PurchaseView> purchases) {
+        return (PurchaseRepository) Proxy.newProxyInstance(PurchaseRepository.class.getClassLoader(),
+                new Class<?>[] { PurchaseRepository.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("findViewById")) {
+                        return Optional.ofNullable(purchases.get((Long) args[0]));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
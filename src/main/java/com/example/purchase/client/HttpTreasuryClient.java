@@ -1,18 +1,32 @@
 package com.example.purchase.client;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.springframework.web.client.RestTemplate;
 
-import java.math.BigDecimal;
+import java.net.URI;
 import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * TreasuryClient implementation that fetches exchange rates from the US Treasury Fiscal Data API.
@@ -24,12 +38,42 @@ public class HttpTreasuryClient implements TreasuryClient {
     private static final String API_URL =
             "https://api.fiscaldata.treasury.gov/services/api/fiscal_service/v1/accounting/od/rates_of_exchange";
 
+    // Everything but the filter, already encoded; the filter is appended per request
+    private static final String RATES_URI = UriComponentsBuilder.fromUriString(API_URL)
+            .queryParam("fields", "exchange_rate,effective_date,record_date")
+            .queryParam("page[size]", "200")
+            .queryParam("sort", "-effective_date,-record_date")
+            .toUriString();
+
+    // Filter fields the currency value may match; it may be an ISO code or a Treasury country-currency description
+    private static final String[] CANDIDATE_FIELDS = { "currency", "country_currency_desc" };
+
     private final RestTemplate rest;
-    private final ObjectMapper mapper;
+    private final TreasuryResponseParser parser;
+    private final Executor executor;
+    private final CircuitBreaker circuitBreaker;
+    private final ObservationRegistry observations;
+
+    // Filter field known to work for each currency value, so later lookups need a single request
+    private final ConcurrentMap<String, String> fieldByCurrency = new ConcurrentHashMap<>();
 
-    public HttpTreasuryClient(RestTemplate restTemplate, ObjectMapper mapper) {
+    /**
+     * @param executor runs the parallel per-field requests; separate from the executor the lookups themselves
+     *                 run on, so a lookup never waits on a request queued behind other lookups
+     * @param circuitBreaker guards the per-currency lookups; while it is open they fail without a request
+     * @param observations records the {@code treasury.requests} timer, per filter field and outcome, and the
+     *                     {@code treasury.parse} timer; with tracing, each is a span
+     */
+    public HttpTreasuryClient(RestTemplate restTemplate,
+                              ObjectMapper mapper,
+                              @Qualifier("treasuryRequestExecutor") Executor executor,
+                              CircuitBreaker circuitBreaker,
+                              ObservationRegistry observations) {
         this.rest = restTemplate;
-        this.mapper = mapper;
+        this.parser = new TreasuryResponseParser(mapper.getFactory());
+        this.executor = executor;
+        this.circuitBreaker = circuitBreaker;
+        this.observations = observations;
     }
 
     /**
@@ -39,145 +83,171 @@ public class HttpTreasuryClient implements TreasuryClient {
     @Override
     public Optional<ExchangeRate> findRateOnOrBeforeWithinSixMonths(LocalDate targetDate, String currencyValue) {
         LocalDate sixMonthsAgo = targetDate.minusMonths(6);
-
-        String[] candidateFields = new String[] { "currency", "country_currency_desc" };
-
-        for (String currencyField : candidateFields) {
-            String uri = buildUri(currencyField, currencyValue, targetDate, sixMonthsAgo);
-            log.debug("Attempting to fetch exchange rates from URI: {}", uri);
-
-            try {
-                String json = rest.getForObject(uri, String.class);
-                if (json == null || json.isEmpty()) {
-                    log.debug("Empty response for filter {}={} (targetDate={})", currencyField, currencyValue, targetDate);
-                    continue;
-                }
-
-                log.trace("Treasury API response: {}", json);
-
-                Optional<ExchangeRate> maybe = parseRates(json, targetDate, sixMonthsAgo, currencyField, currencyValue);
-                if (maybe.isPresent()) {
-                    log.info("Found exchange rate for {}={} on or before {}", currencyField, currencyValue, targetDate);
-                    return maybe;
-                } else {
-                    log.debug("No usable rate found using filter {}={}", currencyField, currencyValue);
-                }
-            } catch (Exception ex) {
-                log.warn("Error fetching/parsing treasury rates for filter {}={} : {}", currencyField, currencyValue, ex.toString());
+        try {
+            // Only the first in-range row is needed, so the rest of the response is never read
+            Optional<ExchangeRate> found = queryByCurrency(currencyValue, Optional.empty(), Optional::isPresent,
+                    currencyField -> fetchRates(currencyField, currencyValue, sixMonthsAgo, targetDate, 1).stream().findFirst());
+            if (found.isPresent()) {
+                log.debug("Found exchange rate for {} on or before {}", currencyValue, targetDate);
+                return found;
             }
+        } catch (RuntimeException ex) {
+            log.warn("Error fetching/parsing treasury rates for {} : {}", currencyValue, ex.toString());
         }
 
-        log.warn("No exchange rate found for currency {} on or before {} within 6 months", currencyValue, targetDate);
+        log.debug("No exchange rate found for currency {} on or before {} within 6 months", currencyValue, targetDate);
         return Optional.empty();
     }
 
     /**
-     * Builds the API URI with the appropriate filters for currency and date range.
+     * Fetches every rate for the currency effective within {@code [from, to]}, most recent first.
+     * Unlike {@link #findRateOnOrBeforeWithinSixMonths}, an empty list is a definite answer: if the
+     * upstream cannot be asked, the error is propagated instead.
      */
-    private String buildUri(String currencyField, String currencyValue, LocalDate targetDate, LocalDate sixMonthsAgo) {
-        // Use FiscalData operators `:lte:` and `:gte:`
-        String filter = String.format("%s:eq:%s,effective_date:lte:%s,effective_date:gte:%s",
-                currencyField,
-                encodeValue(currencyValue),
-                targetDate.toString(),
-                sixMonthsAgo.toString());
-
-        log.debug("Constructed filter: {}", filter);
-
-        return UriComponentsBuilder.fromUriString(API_URL)
-                .queryParam("fields", "exchange_rate,effective_date,record_date")
-                .queryParam("filter", filter)
-                .queryParam("page[size]", "200")
-                .queryParam("sort", "-effective_date,-record_date")
-                .toUriString();
+    public List<ExchangeRate> findRatesBetween(String currencyValue, LocalDate from, LocalDate to) {
+        List<ExchangeRate> rates = queryByCurrency(currencyValue, List.of(), list -> !list.isEmpty(),
+                currencyField -> fetchRates(currencyField, currencyValue, from, to, Integer.MAX_VALUE));
+        log.debug("Found {} rates for {} between {} and {}", rates.size(), currencyValue, from, to);
+        return rates;
     }
 
     /**
-     * Encodes special characters in the currency value for use in the API filter.
+     * Runs a query filtered on the field that matches the currency value. Once a field has returned data
+     * for a value, it is used directly from then on. Otherwise every candidate field is queried at once;
+     * the first usable answer wins and the other requests are cancelled.
+     * <p>
+     * The whole lookup counts as one call of the circuit breaker, timed from start to answer.
+     * @param none the answer when no field returns usable data
+     * @throws RuntimeException the last failure, if no field returned usable data and any query failed,
+     *                          since an empty answer then does not mean there is no data;
+     *                          {@code CallNotPermittedException} if the circuit breaker is open
      */
-    private String encodeValue(String v) {
-        return v == null ? "" : v.replace(" ", "%20").replace(",", "%2C").replace("(", "%28").replace(")", "%29");
+    private <T> T queryByCurrency(String currencyValue, T none, Predicate<T> usable, Function<String, T> query) {
+        return circuitBreaker.executeSupplier(() -> queryByCurrencyField(currencyValue, none, usable, query));
     }
 
-    /**
-     * Parses the JSON response and finds the best (most recent) exchange rate within the date range.
-     */
-    private Optional<ExchangeRate> parseRates(String json, LocalDate targetDate, LocalDate sixMonthsAgo, String usedFilterField, String usedFilterValue) {
+    private <T> T queryByCurrencyField(String currencyValue, T none, Predicate<T> usable, Function<String, T> query) {
+        String knownField = fieldByCurrency.get(currencyValue);
+        if (knownField != null) {
+            return timed(knownField, currencyValue, usable, () -> query.apply(knownField));
+        }
+
+        CompletionService<FieldAnswer<T>> answers = new ExecutorCompletionService<>(executor);
+        List<Future<FieldAnswer<T>>> pending = new ArrayList<>(CANDIDATE_FIELDS.length);
+        for (String currencyField : CANDIDATE_FIELDS) {
+            pending.add(answers.submit(() -> new FieldAnswer<>(currencyField,
+                    timed(currencyField, currencyValue, usable, () -> query.apply(currencyField)))));
+        }
+
+        RuntimeException failure = null;
         try {
-            JsonNode root = mapper.readTree(json);
-            JsonNode data = root;
-            if (!root.isArray()) {
-                JsonNode maybeData = root.path("data");
-                if (maybeData.isArray()) {
-                    data = maybeData;
-                } else {
-                    log.debug("No 'data' array found in response");
-                    return Optional.empty();
+            for (int i = 0; i < CANDIDATE_FIELDS.length; i++) {
+                try {
+                    FieldAnswer<T> answer = answers.take().get();
+                    if (usable.test(answer.value())) {
+                        fieldByCurrency.put(currencyValue, answer.field());
+                        return answer.value();
+                    }
+                } catch (ExecutionException ex) {
+                    log.warn("Error fetching treasury rates for {} : {}", currencyValue, ex.getCause().toString());
+                    failure = ex.getCause() instanceof RuntimeException re ? re : new IllegalStateException(ex.getCause());
                 }
             }
-
-            if (!data.isArray() || data.isEmpty()) {
-                log.debug("No data returned from Treasury API");
-                return Optional.empty();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching treasury rates for " + currencyValue, ex);
+        } finally {
+            for (Future<FieldAnswer<T>> f : pending) {
+                f.cancel(true);
             }
+        }
 
-            LocalDate bestDate = null;
-            BigDecimal bestRate = null;
-
-            Iterator<JsonNode> it = data.elements();
-            while (it.hasNext()) {
-                JsonNode node = it.next();
-
-                JsonNode rateNode = node.path("exchange_rate");
-                if (rateNode.isMissingNode() || rateNode.isNull()) {
-                    rateNode = node.path("exchangeRate");
-                }
-
-                JsonNode dateNode = node.path("effective_date");
-                if (dateNode.isMissingNode() || dateNode.isNull()) {
-                    dateNode = node.path("record_date");
-                }
+        if (failure != null) {
+            throw failure;
+        }
+        return none;
+    }
 
-                if (rateNode.isMissingNode() || rateNode.isNull() || dateNode.isMissingNode() || dateNode.isNull()) {
-                    log.trace("Skipping node due to missing rate or date");
-                    continue;
-                }
+    /**
+     * Times one upstream request. The outcome is {@code data} or {@code empty} for an answer, {@code cancelled}
+     * for the losing request of a parallel query, and {@code error} for a failure.
+     */
+    private <T> T timed(String currencyField, String currencyValue, Predicate<T> usable, Supplier<T> request) {
+        Observation observation = Observation.createNotStarted("treasury.requests", observations)
+                .contextualName("treasury " + currencyField)
+                .lowCardinalityKeyValue("field", currencyField)
+                .highCardinalityKeyValue("currency", currencyValue)
+                .start();
+        try (Observation.Scope scope = observation.openScope()) {
+            T value = request.get();
+            observation.lowCardinalityKeyValue("outcome", usable.test(value) ? "data" : "empty");
+            return value;
+        } catch (RuntimeException ex) {
+            observation.lowCardinalityKeyValue("outcome", Thread.currentThread().isInterrupted() ? "cancelled" : "error");
+            observation.error(ex);
+            throw ex;
+        } finally {
+            observation.stop();
+        }
+    }
 
-                BigDecimal rate;
-                try {
-                    rate = new BigDecimal(rateNode.asText());
-                } catch (NumberFormatException ex) {
-                    log.trace("Skipping node due to invalid rate: {}", rateNode.asText());
-                    continue;
-                }
+    /**
+     * Fetches up to {@code limit} rates effective within {@code [from, to]}, most recent first,
+     * parsing the response as it is read.
+     */
+    private List<ExchangeRate> fetchRates(String currencyField, String currencyValue, LocalDate from, LocalDate to, int limit) {
+        URI uri = buildUri(currencyField, currencyValue, to, from);
+        log.debug("Fetching exchange rates from URI: {}", uri);
+        List<ExchangeRate> rates = rest.execute(uri, HttpMethod.GET, null,
+                response -> Observation.createNotStarted("treasury.parse", observations)
+                        .observeChecked(() -> parser.readRates(response.getBody(), from, to, limit)));
+        return rates == null ? List.of() : rates;
+    }
 
-                LocalDate rateDate;
-                try {
-                    rateDate = LocalDate.parse(dateNode.asText());
-                } catch (DateTimeParseException ex) {
-                    log.trace("Skipping node due to invalid date: {}", dateNode.asText());
-                    continue;
-                }
+    /**
+     * Fetches one page of the full rates_of_exchange dataset, oldest record date first.
+     * Used by the bulk ingestion job; errors are propagated to the caller.
+     * @param recordedSince only return records with a record_date on or after this date, or all records if null
+     * @param pageNumber 1-based page number
+     * @param pageSize number of records per page (the API allows up to 10000)
+     */
+    public RatesPage fetchRatesPage(LocalDate recordedSince, int pageNumber, int pageSize) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(API_URL)
+                .queryParam("fields", "country_currency_desc,currency,exchange_rate,effective_date,record_date")
+                .queryParam("sort", "record_date,country_currency_desc,effective_date")
+                .queryParam("page[number]", pageNumber)
+                .queryParam("page[size]", pageSize);
+        if (recordedSince != null) {
+            builder.queryParam("filter", "record_date:gte:" + recordedSince);
+        }
+        // Pass a URI so RestTemplate does not encode the brackets a second time
+        URI uri = builder.encode().build().toUri();
+        log.debug("Fetching treasury rates page from URI: {}", uri);
 
-                // Only consider rates within the allowed date range
-                if (rateDate.isAfter(targetDate) || rateDate.isBefore(sixMonthsAgo)) {
-                    continue;
-                }
+        RatesPage page = rest.execute(uri, HttpMethod.GET, null, response -> parser.readPage(response.getBody()));
+        return page == null ? new RatesPage(List.of(), 0) : page;
+    }
 
-                // Keep the most recent rate
-                if (bestDate == null || rateDate.isAfter(bestDate)) {
-                    bestDate = rateDate;
-                    bestRate = rate;
-                }
-            }
+    /**
+     * Builds the API URI with the appropriate filters for currency and the effective date range {@code [from, to]}.
+     * The result is already encoded, so it is passed to RestTemplate as a URI and sent as is.
+     */
+    private URI buildUri(String currencyField, String currencyValue, LocalDate to, LocalDate from) {
+        // Use FiscalData operators `:lte:` and `:gte:`
+        return URI.create(new StringBuilder(RATES_URI.length() + 96)
+                .append(RATES_URI)
+                .append("&filter=").append(currencyField).append(":eq:").append(encodeValue(currencyValue))
+                .append(",effective_date:lte:").append(to)
+                .append(",effective_date:gte:").append(from)
+                .toString());
+    }
 
-            if (bestDate != null) {
-                log.debug("Found exchange rate {} on {} using filter {}={}", bestRate, bestDate, usedFilterField, usedFilterValue);
-                return Optional.of(new ExchangeRate(bestDate, bestRate));
-            }
-        } catch (Exception ex) {
-            log.trace("parseRates error: {}", ex.toString());
-        }
-        return Optional.empty();
+    /**
+     * Encodes special characters in the currency value for use in the API filter.
+     */
+    private String encodeValue(String v) {
+        return v == null ? "" : v.replace(" ", "%20").replace(",", "%2C").replace("(", "%28").replace(")", "%29");
     }
+
+    private record FieldAnswer<T>(String field, T value) {}
 }
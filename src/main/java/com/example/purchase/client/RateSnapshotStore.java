@@ -0,0 +1,223 @@
+package com.example.purchase.client;
+
+import com.example.purchase.client.RateTable.CurrencySnapshot;
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists the {@link RateTable} to a local file so a restarted service starts with a warm table.
+ * <p>
+ * The table is written periodically and on shutdown, and loaded through a memory-mapped file while the
+ * application context starts, before any request is served. The file is binary and big-endian:
+ * <pre>
+ * int magic, int version
+ * int currency count, then per currency: short length, UTF-8 name  (the currency id is its position)
+ * int rate count, then per rate:         short currency id, int epoch day, long unscaled rate, byte scale
+ * int range count, then per range:       short currency id, int first epoch day, int last epoch day
+ * </pre>
+ * A file that is missing, unreadable or of another version is ignored; the table then fills up as usual.
+ */
+@Component
+public class RateSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RateSnapshotStore.class);
+
+    static final int MAGIC = 0x52415445; // "RATE"
+    static final int VERSION = 1;
+
+    private static final int RATE_BYTES = Short.BYTES + Integer.BYTES + Long.BYTES + Byte.BYTES;
+    private static final int RANGE_BYTES = Short.BYTES + 2 * Integer.BYTES;
+
+    private final RateTable table;
+    private final Path file;
+
+    /**
+     * @param table the rate table
+     * @param file where the snapshot is kept; blank disables snapshots
+     */
+    public RateSnapshotStore(RateTable table, @Value("${treasury.rates.snapshot.file:}") String file) {
+        this.table = table;
+        this.file = file.isBlank() ? null : Path.of(file);
+    }
+
+    /**
+     * Loads the snapshot, if there is one, into the table.
+     */
+    @PostConstruct
+    public void load() {
+        if (file == null || !Files.isRegularFile(file)) {
+            return;
+        }
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int loaded = read(buffer);
+            log.info("Loaded {} exchange rates from snapshot {} in {} ms", loaded, file, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Ignoring unreadable rate snapshot {}: {}", file, ex.toString());
+        }
+    }
+
+    /**
+     * Writes the current table to the snapshot file, replacing the previous one atomically.
+     */
+    @Scheduled(initialDelayString = "${treasury.rates.snapshot.interval:PT5M}",
+            fixedDelayString = "${treasury.rates.snapshot.interval:PT5M}")
+    @PreDestroy
+    public void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            ByteBuffer buffer = write(table.snapshot());
+            Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(true);
+                }
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            log.debug("Wrote rate snapshot {} ({} bytes)", file, buffer.limit());
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not write rate snapshot {}: {}", file, ex.toString());
+        }
+    }
+
+    static ByteBuffer write(Map<String, CurrencySnapshot> snapshot) {
+        List<byte[]> names = new ArrayList<>(snapshot.size());
+        List<CurrencySnapshot> currencies = new ArrayList<>(snapshot.size());
+        int size = 3 * Integer.BYTES;
+        int rates = 0;
+        int ranges = 0;
+        for (Map.Entry<String, CurrencySnapshot> e : snapshot.entrySet()) {
+            // A currency whose rates cannot all be encoded is left out; it would load with gaps in covered ranges
+            if (names.size() == Short.MAX_VALUE || !e.getValue().rates().stream().allMatch(RateSnapshotStore::fitsLong)) {
+                continue;
+            }
+            byte[] name = e.getKey().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            currencies.add(e.getValue());
+            size += Short.BYTES + name.length;
+            rates += e.getValue().rates().size();
+            ranges += e.getValue().coverage().size();
+        }
+        size += Integer.BYTES + rates * RATE_BYTES + Integer.BYTES + ranges * RANGE_BYTES;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(names.size());
+        for (byte[] name : names) {
+            buffer.putShort((short) name.length).put(name);
+        }
+        buffer.putInt(rates);
+        for (short id = 0; id < currencies.size(); id++) {
+            for (ExchangeRate rate : currencies.get(id).rates()) {
+                BigDecimal value = rate.getRate();
+                buffer.putShort(id)
+                        .putInt((int) rate.getRateDate().toEpochDay())
+                        .putLong(value.unscaledValue().longValueExact())
+                        .put((byte) value.scale());
+            }
+        }
+        buffer.putInt(ranges);
+        for (short id = 0; id < currencies.size(); id++) {
+            for (Map.Entry<LocalDate, LocalDate> range : currencies.get(id).coverage().entrySet()) {
+                buffer.putShort(id)
+                        .putInt((int) range.getKey().toEpochDay())
+                        .putInt((int) range.getValue().toEpochDay());
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Reads a snapshot into the table. Everything is decoded before the table is touched, so a truncated
+     * or corrupt file leaves the table unchanged.
+     * @return the number of rates loaded
+     */
+    int read(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalStateException("not a version " + VERSION + " rate snapshot");
+            }
+            String[] names = new String[checkedCount(buffer, Short.BYTES)];
+            for (int i = 0; i < names.length; i++) {
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+            }
+
+            int rateCount = checkedCount(buffer, RATE_BYTES);
+            String[] rateCurrencies = new String[rateCount];
+            ExchangeRate[] rates = new ExchangeRate[rateCount];
+            for (int i = 0; i < rateCount; i++) {
+                rateCurrencies[i] = names[buffer.getShort()];
+                LocalDate date = LocalDate.ofEpochDay(buffer.getInt());
+                long unscaled = buffer.getLong();
+                rates[i] = new ExchangeRate(date, BigDecimal.valueOf(unscaled, buffer.get()));
+            }
+
+            int rangeCount = checkedCount(buffer, RANGE_BYTES);
+            String[] rangeCurrencies = new String[rangeCount];
+            LocalDate[][] ranges = new LocalDate[rangeCount][];
+            for (int i = 0; i < rangeCount; i++) {
+                rangeCurrencies[i] = names[buffer.getShort()];
+                ranges[i] = new LocalDate[] { LocalDate.ofEpochDay(buffer.getInt()), LocalDate.ofEpochDay(buffer.getInt()) };
+            }
+
+            // Rates first: a covered range must never be visible without its rates
+            for (int i = 0; i < rateCount; i++) {
+                table.put(rateCurrencies[i], rates[i]);
+            }
+            for (int i = 0; i < rangeCount; i++) {
+                table.cover(rangeCurrencies[i], ranges[i][0], ranges[i][1]);
+            }
+            return rateCount;
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException | NegativeArraySizeException ex) {
+            throw new IllegalStateException("truncated or corrupt rate snapshot", ex);
+        }
+    }
+
+    private static int checkedCount(ByteBuffer buffer, int recordBytes) {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * recordBytes > buffer.remaining()) {
+            throw new IllegalStateException("truncated or corrupt rate snapshot");
+        }
+        return count;
+    }
+
+    private static boolean fitsLong(ExchangeRate rate) {
+        BigInteger unscaled = rate.getRate().unscaledValue();
+        int scale = rate.getRate().scale();
+        return unscaled.bitLength() < Long.SIZE && scale >= Byte.MIN_VALUE && scale <= Byte.MAX_VALUE;
+    }
+}
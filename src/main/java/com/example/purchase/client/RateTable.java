@@ -0,0 +1,177 @@
+package com.example.purchase.client;
+
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory, per-currency table of exchange rates indexed by effective date.
+ * <p>
+ * Besides the rates themselves, the table tracks which date ranges are fully known ("covered"):
+ * a covered range holds every rate Treasury published with an effective date inside it. Only
+ * queries that fall inside a covered range are answered locally; everything else is a miss.
+ * Reads are lock-free, writes are serialized per currency.
+ */
+@Component
+public class RateTable {
+
+    private final ConcurrentMap<String, CurrencyRates> byCurrency = new ConcurrentHashMap<>();
+
+    /**
+     * Answers the "on or before, within six months" query from the table.
+     * @param currency Treasury currency value the rates are keyed by.
+     * @param targetDate Date the rate must be effective on or before.
+     * @return a hit carrying the answer (possibly empty) or {@link Lookup#MISS} if the table cannot tell.
+     */
+    public Lookup find(String currency, LocalDate targetDate) {
+        CurrencyRates rates = byCurrency.get(currency);
+        return rates == null ? Lookup.MISS : rates.find(targetDate);
+    }
+
+    /**
+     * Best known answer to the "on or before, within six months" query, whether or not the table is complete
+     * around the target date. Used when the authoritative sources cannot be reached; a rate published since
+     * may be missing.
+     */
+    public Optional<ExchangeRate> findLatestKnown(String currency, LocalDate targetDate) {
+        CurrencyRates rates = byCurrency.get(currency);
+        if (rates == null) {
+            return Optional.empty();
+        }
+        Map.Entry<LocalDate, ExchangeRate> floor = rates.rates.floorEntry(targetDate);
+        if (floor == null || floor.getKey().isBefore(targetDate.minusMonths(6))) {
+            return Optional.empty();
+        }
+        return Optional.of(floor.getValue());
+    }
+
+    /**
+     * Stores a rate without claiming anything about its neighbourhood.
+     */
+    public void put(String currency, ExchangeRate rate) {
+        rates(currency).rates.put(rate.getRateDate(), rate);
+    }
+
+    /**
+     * Marks {@code [from, to]} as covered: every rate effective in that range is in the table.
+     * Overlapping and adjacent ranges are merged.
+     */
+    public void cover(String currency, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return;
+        }
+        rates(currency).cover(from, to);
+    }
+
+    /**
+     * Copies the contents of the table, e.g. to persist them. Safe to call while the table is in use:
+     * coverage is copied before rates, and rates are always stored before the range they belong to
+     * is covered, so every copied range is complete.
+     * @return per currency, its rates and covered ranges
+     */
+    public Map<String, CurrencySnapshot> snapshot() {
+        Map<String, CurrencySnapshot> snapshot = new HashMap<>();
+        byCurrency.forEach((currency, rates) -> {
+            NavigableMap<LocalDate, LocalDate> coverage = new TreeMap<>(rates.coverage);
+            List<ExchangeRate> copied = new ArrayList<>(rates.rates.values());
+            snapshot.put(currency, new CurrencySnapshot(copied, coverage));
+        });
+        return snapshot;
+    }
+
+    private CurrencyRates rates(String currency) {
+        return byCurrency.computeIfAbsent(currency, c -> new CurrencyRates());
+    }
+
+    /**
+     * Contents of the table for one currency.
+     * @param rates rates in effective date order
+     * @param coverage start to end (inclusive) of the disjoint covered ranges
+     */
+    public record CurrencySnapshot(List<ExchangeRate> rates, NavigableMap<LocalDate, LocalDate> coverage) {
+    }
+
+    /**
+     * Result of a table lookup: either a miss, or a hit whose rate may be empty when the table
+     * knows that no rate exists in the six-month window.
+     */
+    public static final class Lookup {
+
+        public static final Lookup MISS = new Lookup(false, null);
+        private static final Lookup NONE = new Lookup(true, null);
+
+        private final boolean hit;
+        private final ExchangeRate rate;
+
+        private Lookup(boolean hit, ExchangeRate rate) {
+            this.hit = hit;
+            this.rate = rate;
+        }
+
+        public boolean isHit() {
+            return hit;
+        }
+
+        public Optional<ExchangeRate> getRate() {
+            return Optional.ofNullable(rate);
+        }
+    }
+
+    private static final class CurrencyRates {
+
+        private final ConcurrentSkipListMap<LocalDate, ExchangeRate> rates = new ConcurrentSkipListMap<>();
+        // start -> end (inclusive) of disjoint covered ranges
+        private final ConcurrentSkipListMap<LocalDate, LocalDate> coverage = new ConcurrentSkipListMap<>();
+
+        Lookup find(LocalDate targetDate) {
+            Map.Entry<LocalDate, LocalDate> range = coverage.floorEntry(targetDate);
+            if (range == null || range.getValue().isBefore(targetDate)) {
+                return Lookup.MISS;
+            }
+            LocalDate coveredFrom = range.getKey();
+            LocalDate sixMonthsAgo = targetDate.minusMonths(6);
+
+            Map.Entry<LocalDate, ExchangeRate> floor = rates.floorEntry(targetDate);
+            if (floor != null && !floor.getKey().isBefore(coveredFrom)) {
+                return floor.getKey().isBefore(sixMonthsAgo) ? Lookup.NONE : new Lookup(true, floor.getValue());
+            }
+            // No rate inside the covered part; that only answers the query if it spans the whole window
+            return coveredFrom.isAfter(sixMonthsAgo) ? Lookup.MISS : Lookup.NONE;
+        }
+
+        synchronized void cover(LocalDate from, LocalDate to) {
+            LocalDate start = from;
+            LocalDate end = to;
+
+            Map.Entry<LocalDate, LocalDate> before = coverage.floorEntry(from);
+            if (before != null && !before.getValue().plusDays(1).isBefore(from)) {
+                start = before.getKey();
+                if (before.getValue().isAfter(end)) {
+                    end = before.getValue();
+                }
+            }
+
+            Map.Entry<LocalDate, LocalDate> next = coverage.higherEntry(start);
+            while (next != null && !next.getKey().isAfter(end.plusDays(1))) {
+                if (next.getValue().isAfter(end)) {
+                    end = next.getValue();
+                }
+                coverage.remove(next.getKey());
+                next = coverage.higherEntry(next.getKey());
+            }
+
+            coverage.put(start, end);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.purchase.client;
+
+import com.example.purchase.repository.TreasuryRateRepository;
+import com.example.purchase.repository.TreasuryRateRepository.StoredWindow;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TreasuryClient that answers lookups from the in-memory {@link RateTable}.
+ * <p>
+ * On a miss it loads the whole rate window around the target date: every rate effective from six months
+ * before the start of the target's calendar quarter to the end of that quarter. The window comes from the
+ * ingested {@code exchange_rates} table when that is complete for it, otherwise from the Treasury API.
+ * It is written back to the table, so every later lookup in the same quarter is answered locally.
+ * Concurrent misses for the same currency and window share a single load.
+ * <p>
+ * Treasury may still publish rates for the last {@code settle-days} days, so the table never treats them as
+ * covered. A window reaching into them is kept aside for {@code treasury.rates.unsettled-ttl} instead, so
+ * lookups for recent dates go upstream at most once per window in that time.
+ * <p>
+ * If a window cannot be loaded (Treasury is down, or its circuit breaker is open), the lookup is answered
+ * from the rates already known locally, and the window is loaded again in the background.
+ * <p>
+ * Lookups are counted in {@code treasury.rate.lookups}, by result: {@code hit} (answered by the table),
+ * {@code loaded}, {@code stale} (answered from known rates after a failed load) and {@code failed}.
+ */
+@Primary
+@Component
+public class RateTableTreasuryClient implements TreasuryClient, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(RateTableTreasuryClient.class);
+
+    private final HttpTreasuryClient upstream;
+    private final TreasuryRateRepository store;
+    private final RateTable table;
+    private final Clock clock;
+    private final int settleDays;
+    private final Executor refreshExecutor;
+    private final SingleFlight<WindowKey, List<ExchangeRate>> inFlight = new SingleFlight<>();
+    // Windows that reach into the settle window; at most two quarters per currency are unsettled at a time
+    private final Cache<WindowKey, List<ExchangeRate>> unsettledWindows;
+    private final Set<WindowKey> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder staleAnswers = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param upstream client used when neither the table nor the store can answer
+     * @param store ingested copy of the Treasury dataset
+     * @param table the rate table
+     * @param clock clock used to decide which dates are settled
+     * @param settleDays how many days back from today Treasury may still publish new rates;
+     *                   answers for more recent dates are stored but not treated as complete
+     * @param refreshExecutor runs the background loads of windows answered from stale rates
+     * @param unsettledTtl how long a loaded window that reaches into the settle window answers lookups
+     */
+    public RateTableTreasuryClient(HttpTreasuryClient upstream,
+                                   TreasuryRateRepository store,
+                                   RateTable table,
+                                   Clock clock,
+                                   @Value("${treasury.rates.settle-days:30}") int settleDays,
+                                   @Qualifier("applicationTaskExecutor") Executor refreshExecutor,
+                                   @Value("${treasury.rates.unsettled-ttl:PT5M}") Duration unsettledTtl) {
+        this.upstream = upstream;
+        this.store = store;
+        this.table = table;
+        this.clock = clock;
+        this.settleDays = settleDays;
+        this.refreshExecutor = refreshExecutor;
+        this.unsettledWindows = Caffeine.newBuilder()
+                .expireAfterWrite(unsettledTtl)
+                .maximumSize(1_000)
+                .build();
+    }
+
+    @Override
+    public Optional<ExchangeRate> findRateOnOrBeforeWithinSixMonths(LocalDate targetDate, String currencyValue) {
+        RateTable.Lookup cached = table.find(currencyValue, targetDate);
+        if (cached.isHit()) {
+            hits.increment();
+            return cached.getRate();
+        }
+
+        WindowKey window = windowFor(currencyValue, targetDate);
+        List<ExchangeRate> unsettled = unsettledWindows.getIfPresent(window);
+        if (unsettled != null) {
+            hits.increment();
+            return latestOnOrBefore(unsettled, targetDate);
+        }
+        log.debug("Rate table miss for {} on or before {}, loading {} to {}", currencyValue, targetDate, window.from(), window.to());
+        try {
+            List<ExchangeRate> rates = inFlight.execute(window, () -> loadWindow(window));
+            loads.increment();
+            return latestOnOrBefore(rates, targetDate);
+        } catch (RuntimeException ex) {
+            Optional<ExchangeRate> stale = table.findLatestKnown(currencyValue, targetDate);
+            if (stale.isPresent()) {
+                log.debug("Could not load rates for {} ({}), answering from known rates", currencyValue, ex.toString());
+                refreshInBackground(window);
+                staleAnswers.increment();
+                return stale.map(ExchangeRate::asStale);
+            }
+            failures.increment();
+            log.warn("Could not load rates for {} between {} and {}: {}", currencyValue, window.from(), window.to(), ex.toString());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        lookupCounter(registry, "hit", hits);
+        lookupCounter(registry, "loaded", loads);
+        lookupCounter(registry, "stale", staleAnswers);
+        lookupCounter(registry, "failed", failures);
+    }
+
+    private static void lookupCounter(MeterRegistry registry, String result, LongAdder count) {
+        FunctionCounter.builder("treasury.rate.lookups", count, LongAdder::sum)
+                .description("Exchange rate lookups by how they were answered")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * Loads the window again off the request path, at most once at a time per window.
+     */
+    private void refreshInBackground(WindowKey window) {
+        if (!refreshing.add(window)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    inFlight.execute(window, () -> loadWindow(window));
+                } catch (RuntimeException ex) {
+                    log.debug("Background refresh of {} failed: {}", window, ex.toString());
+                } finally {
+                    refreshing.remove(window);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            refreshing.remove(window);
+        }
+    }
+
+    /**
+     * The window for a target date: the start of its quarter minus six months, to the end of its quarter
+     * (or today, if the quarter is still running). Any date in the quarter can be answered from it.
+     */
+    private WindowKey windowFor(String currencyValue, LocalDate targetDate) {
+        LocalDate quarterStart = targetDate.withDayOfMonth(1).withMonth((targetDate.getMonthValue() - 1) / 3 * 3 + 1);
+        LocalDate quarterEnd = quarterStart.plusMonths(3).minusDays(1);
+        LocalDate today = LocalDate.now(clock);
+        return new WindowKey(currencyValue, quarterStart.minusMonths(6), quarterEnd.isAfter(today) ? today : quarterEnd);
+    }
+
+    private List<ExchangeRate> loadWindow(WindowKey window) {
+        Optional<StoredWindow> stored = findStored(window);
+        // The store is complete up to the watermark of the last finished ingestion run, so its answer
+        // (including "none") is authoritative
+        if (stored.isPresent() && !window.to().isAfter(stored.get().watermark())) {
+            record(window, stored.get().rates());
+            return stored.get().rates();
+        }
+
+        List<ExchangeRate> rates;
+        try {
+            rates = upstream.findRatesBetween(window.currencyValue(), window.from(), window.to());
+        } catch (RuntimeException ex) {
+            // Keep what the store has as known rates, without claiming the window is complete
+            stored.ifPresent(s -> s.rates().forEach(rate -> table.put(window.currencyValue(), rate)));
+            throw ex;
+        }
+        record(window, rates);
+        return rates;
+    }
+
+    private Optional<StoredWindow> findStored(WindowKey window) {
+        try {
+            return store.findBetween(window.currencyValue(), window.from(), window.to());
+        } catch (DataAccessException ex) {
+            log.warn("Stored rate lookup failed for {}: {}", window.currencyValue(), ex.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores the complete contents of a window and marks its settled part as covered; a window that reaches
+     * into the settle window is also kept whole for a short while.
+     */
+    private void record(WindowKey window, List<ExchangeRate> rates) {
+        for (ExchangeRate rate : rates) {
+            table.put(window.currencyValue(), rate);
+        }
+        LocalDate settled = LocalDate.now(clock).minusDays(settleDays);
+        table.cover(window.currencyValue(), window.from(), window.to().isAfter(settled) ? settled : window.to());
+        if (window.to().isAfter(settled)) {
+            unsettledWindows.put(window, List.copyOf(rates));
+        }
+    }
+
+    private static Optional<ExchangeRate> latestOnOrBefore(List<ExchangeRate> rates, LocalDate targetDate) {
+        LocalDate sixMonthsAgo = targetDate.minusMonths(6);
+        ExchangeRate best = null;
+        for (ExchangeRate rate : rates) {
+            LocalDate d = rate.getRateDate();
+            if (!d.isAfter(targetDate) && !d.isBefore(sixMonthsAgo)
+                    && (best == null || d.isAfter(best.getRateDate()))) {
+                best = rate;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    private record WindowKey(String currencyValue, LocalDate from, LocalDate to) {}
+}
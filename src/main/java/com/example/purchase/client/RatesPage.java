@@ -0,0 +1,11 @@
+package com.example.purchase.client;
+
+import java.util.List;
+
+/**
+ * A page of the Treasury rates_of_exchange dataset.
+ * @param records rows on this page
+ * @param totalPages total number of pages reported by the API for the same query
+ */
+public record RatesPage(List<TreasuryRateRecord> records, int totalPages) {
+}
@@ -5,6 +5,8 @@ import lombok.Getter;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface TreasuryClient {
     /**
@@ -13,14 +15,37 @@ public interface TreasuryClient {
      */
     Optional<ExchangeRate> findRateOnOrBeforeWithinSixMonths(LocalDate targetDate, String currencyCode);
 
+    /**
+     * Asynchronous variant of {@link #findRateOnOrBeforeWithinSixMonths}, run on the given executor.
+     * Lookups block on I/O, so the executor should use virtual threads to keep many in flight cheaply.
+     */
+    default CompletableFuture<Optional<ExchangeRate>> findRateOnOrBeforeWithinSixMonthsAsync(
+            LocalDate targetDate, String currencyCode, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> findRateOnOrBeforeWithinSixMonths(targetDate, currencyCode), executor);
+    }
+
     @Getter
     class ExchangeRate {
         private final LocalDate rateDate;
         private final BigDecimal rate; // price of 1 USD in target currency (or appropriate convention)
+        // Answered from previously known rates because Treasury could not be reached; a newer rate may exist
+        private final boolean stale;
 
         public ExchangeRate(LocalDate rateDate, BigDecimal rate) {
+            this(rateDate, rate, false);
+        }
+
+        private ExchangeRate(LocalDate rateDate, BigDecimal rate, boolean stale) {
             this.rateDate = rateDate;
             this.rate = rate;
+            this.stale = stale;
+        }
+
+        /**
+         * The same rate, marked as a fallback answer that must not be cached as if it were authoritative.
+         */
+        public ExchangeRate asStale() {
+            return new ExchangeRate(rateDate, rate, true);
         }
 
     }
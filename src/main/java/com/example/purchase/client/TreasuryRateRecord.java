@@ -0,0 +1,14 @@
+package com.example.purchase.client;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One row of the Treasury rates_of_exchange dataset.
+ */
+public record TreasuryRateRecord(String countryCurrencyDesc,
+                                 String currency,
+                                 BigDecimal exchangeRate,
+                                 LocalDate effectiveDate,
+                                 LocalDate recordDate) {
+}
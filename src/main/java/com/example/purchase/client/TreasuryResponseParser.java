@@ -0,0 +1,222 @@
+package com.example.purchase.client;
+
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader for rates_of_exchange responses. Rows are read token by token straight from the response
+ * body without building a tree; only the fields the caller needs are kept, and values are only parsed for
+ * rows that are returned.
+ */
+final class TreasuryResponseParser {
+
+    private static final Logger log = LoggerFactory.getLogger(TreasuryResponseParser.class);
+
+    private final JsonFactory factory;
+
+    TreasuryResponseParser(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Reads the rates effective within {@code [from, to]}, most recent first, with one rate per effective date.
+     * Rows must be sorted by {@code -effective_date,-record_date}, so the first row for a date is its latest
+     * record; reading stops once {@code limit} rates are found or a row is older than {@code from}.
+     * @param in a response whose root is either the data array or an object with a {@code data} array
+     */
+    List<ExchangeRate> readRates(InputStream in, LocalDate from, LocalDate to, int limit) throws IOException {
+        List<ExchangeRate> rates = new ArrayList<>();
+        try (JsonParser p = factory.createParser(in)) {
+            if (!moveToData(p)) {
+                log.debug("No data returned from Treasury API");
+                return rates;
+            }
+
+            // ISO dates compare correctly as text, so well-formed rows are filtered before anything is parsed
+            String fromText = from.toString();
+            String toText = to.toString();
+            String lastDate = null;
+            while (rates.size() < limit && p.nextToken() == JsonToken.START_OBJECT) {
+                String rate = null;
+                String effectiveDate = null;
+                String recordDate = null;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    JsonToken value = p.nextToken();
+                    switch (field) {
+                        case "exchange_rate" -> rate = textOf(p, value);
+                        case "exchangeRate" -> rate = rate == null ? textOf(p, value) : rate;
+                        case "effective_date" -> effectiveDate = textOf(p, value);
+                        case "record_date" -> recordDate = textOf(p, value);
+                        default -> p.skipChildren();
+                    }
+                }
+
+                String date = effectiveDate != null ? effectiveDate : recordDate;
+                if (rate == null || date == null) {
+                    log.trace("Skipping row due to missing rate or date");
+                    continue;
+                }
+                if (!isIsoDate(date)) {
+                    // "2024-1-5" would sort below a well-formed date and end the read early
+                    log.trace("Skipping row due to invalid date {}", date);
+                    continue;
+                }
+                if (date.compareTo(toText) > 0 || date.equals(lastDate)) {
+                    continue;
+                }
+                if (date.compareTo(fromText) < 0) {
+                    if (effectiveDate != null) {
+                        break;
+                    }
+                    continue;
+                }
+
+                try {
+                    rates.add(new ExchangeRate(LocalDate.parse(date), new BigDecimal(rate)));
+                    lastDate = date;
+                } catch (NumberFormatException | DateTimeParseException ex) {
+                    log.trace("Skipping row due to invalid rate {} or date {}", rate, date);
+                }
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * Whether {@code text} has the {@code yyyy-MM-dd} shape, so that it orders as text the way it does as a date.
+     * Field values are not checked; {@code LocalDate.parse} rejects those when the row is kept.
+     */
+    private static boolean isIsoDate(String text) {
+        if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return false;
+        }
+        for (int i = 0; i < 10; i++) {
+            if (i != 4 && i != 7 && (text.charAt(i) < '0' || text.charAt(i) > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads one page of the full dataset, skipping rows with missing or invalid values.
+     */
+    RatesPage readPage(InputStream in) throws IOException {
+        List<TreasuryRateRecord> records = new ArrayList<>();
+        int totalPages = 0;
+        try (JsonParser p = factory.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return new RatesPage(records, 0);
+            }
+            // meta may come before or after data
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("data".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        readRecord(p, records);
+                    }
+                } else if ("meta".equals(field) && value == JsonToken.START_OBJECT) {
+                    totalPages = readTotalPages(p);
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return new RatesPage(records, totalPages);
+    }
+
+    private static void readRecord(JsonParser p, List<TreasuryRateRecord> records) throws IOException {
+        String desc = null;
+        String currency = null;
+        String rate = null;
+        String effectiveDate = null;
+        String recordDate = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "country_currency_desc" -> desc = textOf(p, value);
+                case "currency" -> currency = textOf(p, value);
+                case "exchange_rate" -> rate = textOf(p, value);
+                case "effective_date" -> effectiveDate = textOf(p, value);
+                case "record_date" -> recordDate = textOf(p, value);
+                default -> p.skipChildren();
+            }
+        }
+        if (desc == null || rate == null || effectiveDate == null || recordDate == null) {
+            log.trace("Skipping record due to missing fields: {} {}", desc, effectiveDate);
+            return;
+        }
+        try {
+            records.add(new TreasuryRateRecord(desc, currency, new BigDecimal(rate),
+                    LocalDate.parse(effectiveDate), LocalDate.parse(recordDate)));
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            log.trace("Skipping record due to invalid value: {} {} {}", desc, rate, effectiveDate);
+        }
+    }
+
+    private static int readTotalPages(JsonParser p) throws IOException {
+        int totalPages = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            if ("total-pages".equals(field)) {
+                totalPages = p.getValueAsInt(0);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return totalPages;
+    }
+
+    /**
+     * Positions the parser on the start of the data array.
+     * @return false if the response has no data array
+     */
+    private static boolean moveToData(JsonParser p) throws IOException {
+        JsonToken root = p.nextToken();
+        if (root == JsonToken.START_ARRAY) {
+            return true;
+        }
+        if (root != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            if ("data".equals(field) && value == JsonToken.START_ARRAY) {
+                return true;
+            }
+            p.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * Text of a scalar value; null for JSON null and for objects or arrays, which are skipped.
+     */
+    private static String textOf(JsonParser p, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value.isStructStart()) {
+            p.skipChildren();
+            return null;
+        }
+        return p.getText();
+    }
+}
@@ -1,20 +1,124 @@
 package com.example.purchase.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.observation.ObservationRegistry;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
+    /**
+     * HTTP client for the Treasury API. Connections are pooled and reused by the JDK client, over HTTP/2
+     * where the server supports it; response handling runs on virtual threads.
+     */
+    @Bean
+    public HttpClient httpClient(@Value("${treasury.http.connect-timeout:2s}") Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    /**
+     * RestTemplate for the Treasury API. Requests are observed, so each one gets a client span and carries
+     * the trace context in its headers.
+     */
+    @Bean
+    public RestTemplate restTemplate(HttpClient httpClient,
+                                     @Value("${treasury.http.read-timeout:5s}") Duration readTimeout,
+                                     ObservationRegistry observationRegistry) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.setObservationRegistry(observationRegistry);
+        return restTemplate;
+    }
+
+    /**
+     * Carries the current observation (and so the trace) into tasks run on Spring's task executor, such as
+     * batch rate lookups, and on {@link #treasuryRequestExecutor}.
+     */
+    @Bean
+    public ContextPropagatingTaskDecorator contextPropagatingTaskDecorator() {
+        return new ContextPropagatingTaskDecorator();
+    }
+
+    /**
+     * Runs the parallel per-field Treasury requests of a lookup. Those lookups themselves run on Spring's task
+     * executor, which is a bounded pool when {@code spring.threads.virtual.enabled} is off; if the requests
+     * they wait for were queued on the same pool, its threads could all end up waiting on tasks that never
+     * start. Requests only block on I/O, so each gets its own virtual thread.
+     */
+    @Bean
+    public SimpleAsyncTaskExecutor treasuryRequestExecutor(ContextPropagatingTaskDecorator contextPropagatingTaskDecorator) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("treasury-");
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(contextPropagatingTaskDecorator);
+        return executor;
+    }
+
+    /**
+     * Circuit breakers, configured for the Treasury API. While a breaker is open, lookups fail at once instead
+     * of each one waiting for the HTTP timeouts; callers fall back to the rates they already have.
+     */
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(
+            @Value("${treasury.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${treasury.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${treasury.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${treasury.circuit-breaker.slow-call-rate-threshold:50}") float slowCallRateThreshold,
+            @Value("${treasury.circuit-breaker.slow-call-duration:3s}") Duration slowCallDuration,
+            @Value("${treasury.circuit-breaker.open-duration:30s}") Duration openDuration) {
+        return CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .waitDurationInOpenState(openDuration)
+                .build());
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public CircuitBreaker treasuryCircuitBreaker(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return circuitBreakerRegistry.circuitBreaker("treasury");
+    }
+
+    /**
+     * Publishes circuit breaker states and call counts as {@code resilience4j.circuitbreaker.*} meters.
+     */
+    @Bean
+    public MeterBinder circuitBreakerMetrics(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry);
     }
 
     @Bean
     public ObjectMapper objectMapper() {
-        return new ObjectMapper();
+        return new ObjectMapper().registerModule(new JavaTimeModule());
+    }
+
+    @Bean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
     }
 }
@@ -0,0 +1,57 @@
+package com.example.purchase.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Connection pools for the primary database and, optionally, a read replica.
+ * <p>
+ * The application's {@code dataSource} routes each transaction by its read-only flag: read-only transactions
+ * ({@code @Transactional(readOnly = true)}, including Spring Data's own finders) run on the replica pool,
+ * everything else on the primary. Connections are only taken from a pool when the first statement runs,
+ * which is when the flag is known, so a transaction that never reaches the database holds no connection.
+ * Without {@code purchase.datasource.replica.jdbc-url} every transaction runs on the primary.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * Pool for the primary, from the usual {@code spring.datasource.*} properties; tuned through
+     * {@code spring.datasource.hikari.*}.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Pool for the read replica, configured as a whole through {@code purchase.datasource.replica.*}
+     * (HikariCP property names, e.g. {@code jdbc-url}, {@code maximum-pool-size}).
+     */
+    @Bean
+    @ConditionalOnProperty("purchase.datasource.replica.jdbc-url")
+    @ConfigurationProperties("purchase.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        return new HikariDataSource();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        replicaDataSource.ifAvailable(dataSource::setReadOnlyDataSource);
+        return dataSource;
+    }
+}
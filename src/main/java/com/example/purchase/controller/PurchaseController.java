@@ -1,15 +1,42 @@
 package com.example.purchase.controller;
 
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.BatchConversionRequest;
+import com.example.purchase.dto.BulkPurchaseResponse;
+import com.example.purchase.dto.ExportFormat;
+import com.example.purchase.dto.PurchasePage;
 import com.example.purchase.dto.PurchaseRequest;
 import com.example.purchase.dto.PurchaseResponse;
+import com.example.purchase.repository.PurchaseCursor;
+import com.example.purchase.repository.PurchaseFilter;
+import com.example.purchase.service.PurchaseBulkService;
+import com.example.purchase.service.PurchaseExportService;
 import com.example.purchase.service.PurchaseService;
-import com.example.purchase.validation.ValidCurrency;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * REST controller for managing purchases.
@@ -22,13 +49,33 @@ public class PurchaseController {
     private static final Logger log = LoggerFactory.getLogger(PurchaseController.class);
 
     private final PurchaseService service;
+    private final PurchaseExportService exportService;
+    private final PurchaseBulkService bulkService;
+    private final Clock clock;
+    private final int settleDays;
+    private final Duration settledMaxAge;
 
     /**
-     * Constructs a new PurchaseController with the given service.
+     * Constructs a new PurchaseController with the given services.
      * @param service the purchase service
+     * @param exportService the purchase export service
+     * @param bulkService the bulk purchase service
+     * @param clock clock used to decide which conversions are settled
+     * @param settleDays how many days back from today Treasury may still publish new rates
+     * @param settledMaxAge how long clients may cache a settled conversion without revalidating
      */
-    public PurchaseController(PurchaseService service) {
+    public PurchaseController(PurchaseService service,
+                              PurchaseExportService exportService,
+                              PurchaseBulkService bulkService,
+                              Clock clock,
+                              @Value("${treasury.rates.settle-days:30}") int settleDays,
+                              @Value("${purchase.http.settled-max-age:P1D}") Duration settledMaxAge) {
         this.service = service;
+        this.exportService = exportService;
+        this.bulkService = bulkService;
+        this.clock = clock;
+        this.settleDays = settleDays;
+        this.settledMaxAge = settledMaxAge;
     }
 
     /**
@@ -38,25 +85,147 @@ public class PurchaseController {
      */
     @PostMapping
     public ResponseEntity<Long> createPurchase(@Valid @RequestBody PurchaseRequest request) {
-        log.info("Received request to create purchase: {}", request);
-        Long id = service.createPurchase(request);
-        log.info("Purchase created with ID: {}", id);
-        return ResponseEntity.ok(id);
+        return ResponseEntity.ok(service.createPurchase(request));
+    }
+
+    /**
+     * Creates many purchases from a JSON array or an NDJSON stream (one purchase per line).
+     * Each element is validated like a single create request; invalid elements are reported, not saved.
+     * An NDJSON line that is not valid JSON is reported like an invalid element. A JSON array that stops being
+     * valid JSON is answered with 400, still listing the elements read before that point, which were saved.
+     * @param request the raw request, read as a stream
+     * @return the created ID or the validation errors for every element, in input order
+     */
+    @PostMapping(path = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public ResponseEntity<BulkPurchaseResponse> createPurchases(HttpServletRequest request) throws IOException {
+        log.debug("Received bulk purchase request ({})", request.getContentType());
+        boolean ndjson = request.getContentType() != null
+                && MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.APPLICATION_NDJSON);
+        BulkPurchaseResponse response = bulkService.createPurchases(request.getInputStream(), ndjson);
+        return response.getError() == null ? ResponseEntity.ok(response) : ResponseEntity.badRequest().body(response);
+    }
+
+    /**
+     * Lists purchases in (transaction date, id) order, filtered by transaction date and amount, one page at a time.
+     * Pages are fetched by cursor rather than offset, so a deep page costs the same as the first one.
+     * @param from first transaction date, inclusive
+     * @param to last transaction date, inclusive
+     * @param minAmount smallest USD amount, inclusive
+     * @param maxAmount largest USD amount, inclusive
+     * @param currency target currency for every row, resolved from its code while binding; USD by default
+     * @param after the {@code next} cursor of the previous page; absent for the first page
+     * @param size the maximum number of purchases on the page, 1 to 500
+     * @return the page of purchases and the cursor of the next one
+     */
+    @GetMapping
+    public ResponseEntity<PurchasePage> listPurchases(
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "minAmount", required = false) BigDecimal minAmount,
+            @RequestParam(name = "maxAmount", required = false) BigDecimal maxAmount,
+            @RequestParam(name = "currency", defaultValue = "USD") TreasuryCurrency currency,
+            @RequestParam(name = "after", required = false) PurchaseCursor after,
+            @Min(value = 1, message = "size must be between 1 and 500")
+            @Max(value = 500, message = "size must be between 1 and 500")
+            @RequestParam(name = "size", defaultValue = "50") int size) {
+        PurchaseFilter filter = new PurchaseFilter(from, to, minAmount, maxAmount);
+        return ResponseEntity.ok(service.listPurchases(filter, after, size, currency));
     }
 
     /**
      * Retrieves a purchase by ID and converts the amount to the requested currency.
+     * The response carries a strong ETag, so a matching {@code If-None-Match} gets a 304 without a body.
+     * While the conversion is still cached the tag is checked against the cached entry first, so revalidation
+     * needs no database or rate lookup; otherwise the conversion is recomputed and then compared. A conversion
+     * made with a fallback rate while Treasury was unreachable is sent without an ETag and with {@code no-cache}.
      * @param id the purchase ID
-     * @param currency the target currency code (validated)
-     * @return the purchase response with converted amount
+     * @param currency the target currency, resolved from its code while binding
+     * @param request the current request, for its conditional headers
+     * @return the purchase response with converted amount, or 304 Not Modified
      */
     @GetMapping("/{id}")
     public ResponseEntity<PurchaseResponse> getPurchase(
             @PathVariable Long id,
-            @ValidCurrency @RequestParam(name = "currency", required = true) String currency) {
-        log.info("Fetching purchase with ID: {} and currency: {}", id, currency);
+            @RequestParam(name = "currency", required = true) TreasuryCurrency currency,
+            WebRequest request) {
+        Optional<PurchaseResponse> cached = service.findCachedConversion(id, currency);
+        if (cached.isPresent() && request.checkNotModified(eTagFor(cached.get()))) {
+            // checkNotModified has already set the 304 status and the ETag
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControlFor(cached.get()))
+                    .build();
+        }
         PurchaseResponse resp = service.getPurchaseConverted(id, currency);
-        log.info("Returning purchase response: {}", resp);
+        if (resp.isStale()) {
+            // A fallback rate is no answer to revalidate against: no ETag, and no reuse without asking again
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(resp);
+        }
+        // Spring answers 304 Not Modified itself when If-None-Match matches the ETag
+        return ResponseEntity.ok()
+                .eTag(eTagFor(resp))
+                .cacheControl(cacheControlFor(resp))
+                .body(resp);
+    }
+
+    /**
+     * A conversion is determined by the purchase, the currency and the rate used. Both the effective date and the
+     * value of the rate are part of the tag, since a re-published rate replaces the value for the same date.
+     */
+    private static String eTagFor(PurchaseResponse resp) {
+        StringBuilder tag = new StringBuilder().append(resp.getId()).append('-').append(resp.getTargetCurrency());
+        if (resp.getRateEffectiveDate() != null) {
+            tag.append('-').append(resp.getRateEffectiveDate());
+        }
+        if (resp.getExchangeRate() != null) {
+            tag.append('-').append(resp.getExchangeRate().toPlainString());
+        }
+        return tag.toString();
+    }
+
+    /**
+     * Settled conversions may be cached by clients and shared caches; recent ones, whose rate Treasury may
+     * still revise, must be revalidated on every use.
+     */
+    private CacheControl cacheControlFor(PurchaseResponse resp) {
+        LocalDate settled = LocalDate.now(clock).minusDays(settleDays);
+        if (resp.getTransactionDate() != null && resp.getTransactionDate().isBefore(settled)) {
+            return CacheControl.maxAge(settledMaxAge).cachePublic();
+        }
+        return CacheControl.noCache();
+    }
+
+    /**
+     * Converts several purchases into one or more currencies in a single call.
+     * @param request the purchase IDs and target currency codes (validated)
+     * @return one converted response per (id, currency) pair
+     */
+    @PostMapping("/convert")
+    public ResponseEntity<List<PurchaseResponse>> convertPurchases(@Valid @RequestBody BatchConversionRequest request) {
+        log.debug("Converting {} purchases into currencies {}", request.getIds().size(), request.getCurrencies());
+        List<PurchaseResponse> resp = service.convertBatch(request.getIds(), request.getCurrencies());
         return ResponseEntity.ok(resp);
     }
+
+    /**
+     * Streams all purchases in a transaction date range, converted to the requested currency.
+     * Rows are written as they are read, so the response size is not limited by memory.
+     * @param currency the target currency, resolved from its code while binding
+     * @param from first transaction date, inclusive
+     * @param to last transaction date, inclusive
+     * @param format {@code ndjson} (default) or {@code csv}
+     * @return the streamed export
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPurchases(
+            @RequestParam(name = "currency", required = true) TreasuryCurrency currency,
+            @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Pattern(regexp = "(?i)ndjson|csv", message = "format must be ndjson or csv")
+            @RequestParam(name = "format", defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.valueOf(format.toUpperCase());
+        StreamingResponseBody body = out -> exportService.export(from, to, currency, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+                .body(body);
+    }
 }
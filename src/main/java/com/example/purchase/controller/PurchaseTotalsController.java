@@ -0,0 +1,49 @@
+package com.example.purchase.controller;
+
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.DailyTotalResponse;
+import com.example.purchase.service.PurchaseTotalsService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST controller for aggregate purchase reports.
+ */
+@RestController
+@RequestMapping("/purchases")
+@Validated
+public class PurchaseTotalsController {
+
+    private final PurchaseTotalsService service;
+
+    /**
+     * Constructs a new PurchaseTotalsController.
+     * @param service the purchase totals service
+     */
+    public PurchaseTotalsController(PurchaseTotalsService service) {
+        this.service = service;
+    }
+
+    /**
+     * Returns the total spend of every day in a date range that has purchases, converted to the currency.
+     * @param from first transaction date, inclusive
+     * @param to last transaction date, inclusive
+     * @param currency the target currency, resolved from its code while binding; USD by default
+     * @return one row per day, oldest first
+     */
+    @GetMapping("/daily-totals")
+    public ResponseEntity<List<DailyTotalResponse>> getDailyTotals(
+            @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "currency", defaultValue = "USD") TreasuryCurrency currency) {
+        return ResponseEntity.ok(service.dailyTotals(from, to, currency));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.purchase.controller;
+
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.RateResponse;
+import com.example.purchase.service.RateService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * REST controller exposing the exchange rates purchases are converted with.
+ */
+@RestController
+@RequestMapping("/rates")
+@Validated
+public class RateController {
+
+    private static final Logger log = LoggerFactory.getLogger(RateController.class);
+
+    private final RateService service;
+    private final Clock clock;
+
+    /**
+     * Constructs a new RateController.
+     * @param service the rate service
+     * @param clock clock used when no date is given
+     */
+    public RateController(RateService service, Clock clock) {
+        this.service = service;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the rate that purchases in the currency dated {@code on} are converted with.
+     * A stale fallback rate, served while Treasury is unreachable, is sent with {@code no-cache}.
+     * @param currency the target currency, resolved from its code while binding
+     * @param on the purchase date; defaults to today
+     * @return the rate with its effective date and source
+     */
+    @GetMapping("/{currency}")
+    public ResponseEntity<RateResponse> getRate(
+            @PathVariable TreasuryCurrency currency,
+            @RequestParam(name = "on", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate on) {
+        LocalDate date = on != null ? on : LocalDate.now(clock);
+        log.debug("Fetching {} exchange rate on {}", currency, date);
+        RateResponse rate = service.getRate(currency, date);
+        if (rate.isStale()) {
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(rate);
+        }
+        return ResponseEntity.ok(rate);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.purchase.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Logs one line per request, after it completes: method, path, matched route, status and duration.
+ * The values are also attached as key-value pairs, so structured log formats carry them as fields.
+ * <p>
+ * Uses the {@code purchase.requests} logger; set its level to OFF to disable the summaries.
+ * Actuator requests are not logged.
+ */
+@Component
+public class RequestSummaryFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger("purchase.requests");
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !log.isInfoEnabled() || request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long started = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long durationMs = (System.nanoTime() - started) / 1_000_000;
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            log.atInfo()
+                    .addKeyValue("method", request.getMethod())
+                    .addKeyValue("path", request.getRequestURI())
+                    .addKeyValue("route", route)
+                    .addKeyValue("status", response.getStatus())
+                    .addKeyValue("durationMs", durationMs)
+                    .log("{} {} {} {} ms", request.getMethod(), request.getRequestURI(), response.getStatus(), durationMs);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.purchase.controller;
+
+import com.example.purchase.domain.TreasuryCurrency;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Binds request parameters to {@link TreasuryCurrency} by ISO code, ignoring case and surrounding blanks, so
+ * handlers receive the currency already resolved. An unknown code fails the binding, which is answered with
+ * the same 400 as {@code @ValidCurrency}.
+ */
+@Component
+public class TreasuryCurrencyConverter implements Converter<String, TreasuryCurrency> {
+
+    @Override
+    public TreasuryCurrency convert(String code) {
+        TreasuryCurrency currency = TreasuryCurrency.fromCode(code.strip());
+        if (currency == null) {
+            throw new IllegalArgumentException("Unknown currency code: " + code);
+        }
+        return currency;
+    }
+}
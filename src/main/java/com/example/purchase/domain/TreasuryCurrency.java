@@ -2,6 +2,14 @@ package com.example.purchase.domain;
 
 import lombok.Getter;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
 /**
  * Enum representing supported treasury currencies with their descriptions and ISO 4217 codes.
  */
@@ -59,6 +67,35 @@ public enum TreasuryCurrency {
     private final String desc;
     private final String currencyCode; // ISO 4217 alpha
 
+    private static final int LETTERS = 26;
+
+    // Indexed by the code's letters as a base-26 number, so lookups need no case conversion or hashing
+    private static final TreasuryCurrency[] BY_CODE = new TreasuryCurrency[LETTERS * LETTERS * LETTERS];
+    private static final Map<String, TreasuryCurrency> BY_DESC;
+    private static final NavigableMap<String, TreasuryCurrency> BY_DESC_IGNORE_CASE;
+    private static final Map<String, List<TreasuryCurrency>> ALL_BY_CODE;
+
+    static {
+        Map<String, TreasuryCurrency> byDesc = new HashMap<>();
+        TreeMap<String, TreasuryCurrency> byDescIgnoreCase = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<String, List<TreasuryCurrency>> allByCode = new HashMap<>();
+        for (TreasuryCurrency c : values()) {
+            // Several descriptions share a code (e.g. EUR); the first declared one is the code's default
+            int index = codeIndex(c.currencyCode);
+            if (BY_CODE[index] == null) {
+                BY_CODE[index] = c;
+            }
+            byDesc.putIfAbsent(c.desc, c);
+            byDescIgnoreCase.putIfAbsent(c.desc, c);
+            allByCode.computeIfAbsent(c.currencyCode, k -> new ArrayList<>()).add(c);
+        }
+        BY_DESC = Map.copyOf(byDesc);
+        BY_DESC_IGNORE_CASE = Collections.unmodifiableNavigableMap(byDescIgnoreCase);
+        Map<String, List<TreasuryCurrency>> copy = new HashMap<>();
+        allByCode.forEach((code, currencies) -> copy.put(code, List.copyOf(currencies)));
+        ALL_BY_CODE = Map.copyOf(copy);
+    }
+
     /**
      * Constructor for TreasuryCurrency enum.
      * @param desc Description of the currency.
@@ -76,27 +113,30 @@ public enum TreasuryCurrency {
      */
     public static TreasuryCurrency fromDesc(String desc) {
         if (desc == null) return null;
-        for (TreasuryCurrency c : values()) {
-            if (c.desc.equalsIgnoreCase(desc)) {
-                return c;
-            }
-        }
-        return null;
+        TreasuryCurrency c = BY_DESC.get(desc);
+        return c != null ? c : BY_DESC_IGNORE_CASE.get(desc);
     }
 
     /**
      * Returns the TreasuryCurrency enum constant matching the given ISO 4217 code (case-insensitive).
+     * When several descriptions share the code, the first declared one is returned.
      * @param code ISO 4217 code to match.
      * @return TreasuryCurrency or null if not found.
      */
     public static TreasuryCurrency fromCode(String code) {
         if (code == null) return null;
-        for (TreasuryCurrency c : values()) {
-            if (c.currencyCode.equalsIgnoreCase(code)) {
-                return c;
-            }
-        }
-        return null;
+        int index = codeIndex(code);
+        return index < 0 ? null : BY_CODE[index];
+    }
+
+    /**
+     * Returns every TreasuryCurrency with the given ISO 4217 code, in declaration order.
+     * @param code ISO 4217 code to match (case-insensitive).
+     * @return the matching constants, empty if none.
+     */
+    public static List<TreasuryCurrency> allForCode(String code) {
+        TreasuryCurrency c = fromCode(code);
+        return c == null ? List.of() : ALL_BY_CODE.get(c.currencyCode);
     }
 
     /**
@@ -108,4 +148,20 @@ public enum TreasuryCurrency {
         TreasuryCurrency c = fromCode(code);
         return c == null ? null : c.getDesc();
     }
+
+    /**
+     * Position of a three-letter code in {@link #BY_CODE}, ignoring case.
+     * @return the index, or -1 if the code is not three ASCII letters.
+     */
+    private static int codeIndex(String code) {
+        if (code.length() != 3) return -1;
+        int index = 0;
+        for (int i = 0; i < 3; i++) {
+            // Setting bit 0x20 maps 'A'-'Z' onto 'a'-'z'; any other character lands outside 'a'-'z'
+            int letter = (code.charAt(i) | 0x20) - 'a';
+            if (letter < 0 || letter >= LETTERS) return -1;
+            index = index * LETTERS + letter;
+        }
+        return index;
+    }
 }
@@ -0,0 +1,24 @@
+package com.example.purchase.dto;
+
+import com.example.purchase.validation.ValidCurrency;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Setter
+@Getter
+public class BatchConversionRequest {
+
+    @NotEmpty
+    @Size(max = 1000)
+    private List<@NotNull Long> ids;
+
+    @NotEmpty
+    @Size(max = 50)
+    private List<@ValidCurrency String> currencies;
+
+}
@@ -0,0 +1,36 @@
+package com.example.purchase.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class BulkPurchaseResponse {
+
+    private final int created;
+    private final int rejected;
+    private final List<BulkPurchaseResult> results;
+
+    // Why the input was not read to the end; absent when every element was read
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String error;
+
+    public BulkPurchaseResponse(List<BulkPurchaseResult> results) {
+        this(results, null);
+    }
+
+    public BulkPurchaseResponse(List<BulkPurchaseResult> results, String error) {
+        int ok = 0;
+        for (BulkPurchaseResult r : results) {
+            if (r.getId() != null) {
+                ok++;
+            }
+        }
+        this.created = ok;
+        this.rejected = results.size() - ok;
+        this.results = results;
+        this.error = error;
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.example.purchase.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of one element of a bulk purchase request: either the new purchase ID or the reasons it was rejected.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkPurchaseResult {
+
+    private final int index;
+    private final Long id;
+    private final List<String> errors;
+
+    private BulkPurchaseResult(int index, Long id, List<String> errors) {
+        this.index = index;
+        this.id = id;
+        this.errors = errors;
+    }
+
+    public static BulkPurchaseResult created(int index, Long id) {
+        return new BulkPurchaseResult(index, id, null);
+    }
+
+    public static BulkPurchaseResult rejected(int index, List<String> errors) {
+        return new BulkPurchaseResult(index, null, errors);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.purchase.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Total spend of one day, converted with the rate that applies to that day's purchases.
+ */
+@Setter
+@Getter
+public class DailyTotalResponse {
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate date;
+
+    private long purchaseCount;
+    private BigDecimal amountUsd;
+    private String targetCurrency;
+    private BigDecimal exchangeRate;
+    private BigDecimal convertedAmount;
+
+    // Effective date and source of the rate used; absent when no conversion was needed
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate rateEffectiveDate;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String rateSource;
+
+    public DailyTotalResponse() {}
+
+}
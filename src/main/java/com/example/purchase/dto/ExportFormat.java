@@ -0,0 +1,19 @@
+package com.example.purchase.dto;
+
+import lombok.Getter;
+
+/**
+ * Output formats supported by the purchase export.
+ */
+@Getter
+public enum ExportFormat {
+
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String mediaType;
+
+    ExportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.purchase.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of purchases. {@code next} is the cursor to pass as {@code after} for the following page,
+ * or null on the last page.
+ */
+@Getter
+public class PurchasePage {
+
+    private final List<PurchaseResponse> items;
+    private final String next;
+
+    public PurchasePage(List<PurchaseResponse> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+}
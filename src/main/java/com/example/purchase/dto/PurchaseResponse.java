@@ -1,6 +1,8 @@
 package com.example.purchase.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -22,6 +24,18 @@ public class PurchaseResponse {
     private BigDecimal exchangeRate;
     private BigDecimal convertedAmount;
 
+    // Effective date and source of the rate used; absent when no conversion was needed
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate rateEffectiveDate;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String rateSource;
+
+    // Converted with a fallback rate while Treasury was unreachable; such a response must not be cached
+    @JsonIgnore
+    private boolean stale;
+
     public PurchaseResponse() {}
 
 }
@@ -0,0 +1,46 @@
+package com.example.purchase.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * The exchange rate that applies to purchases in a currency on a given date.
+ * A rate is only used for purchases dated at most six months after it took effect, so every purchase dated
+ * from {@code rateEffectiveDate} through {@code validThrough} converts with this rate unless a newer one is
+ * published in between; clients can fetch a rate once and convert those purchases locally. A purchase dated
+ * after {@code validThrough} needs a newer rate, or cannot be converted at all.
+ * <p>
+ * A {@code stale} rate is a fallback served while Treasury was unreachable. A newer rate may exist, so it comes
+ * without {@code validThrough} and should not be reused for other dates.
+ */
+@Setter
+@Getter
+public class RateResponse {
+
+    private String currency;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate on;
+
+    private BigDecimal exchangeRate;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate rateEffectiveDate;
+
+    // Last purchase date the rate may convert: six months after rateEffectiveDate
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate validThrough;
+
+    private String rateSource;
+
+    // Fallback rate served while Treasury was unreachable; only written when true
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean stale;
+
+    public RateResponse() {}
+}
@@ -10,11 +10,15 @@ import java.time.LocalDate;
 @Setter
 @Getter
 @Entity
+// Partitioned by month of transaction_date and keyed by (transaction_date, id), the order keyset pagination and
+// date-range exports read in; see db/migration/V2__partition_purchases.sql
 @Table(name = "purchases")
 public class Purchase {
 
+    // Pooled sequence so Hibernate can batch inserts; one sequence call per 50 ids
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "purchase_seq")
+    @SequenceGenerator(name = "purchase_seq", sequenceName = "purchase_seq", allocationSize = 50)
     private Long id;
 
     @Column(length = 50, nullable = false)
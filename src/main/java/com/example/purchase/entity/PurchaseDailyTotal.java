@@ -0,0 +1,32 @@
+package com.example.purchase.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Number and USD total of the purchases made on one day.
+ * Rows are maintained by {@code PurchaseDailyTotalRepository} in the transactions that create purchases.
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "purchase_daily_totals")
+public class PurchaseDailyTotal {
+
+    @Id
+    @Column(name = "transaction_date")
+    private LocalDate transactionDate;
+
+    @Column(name = "purchase_count", nullable = false)
+    private long purchaseCount;
+
+    @Column(name = "amount_usd", nullable = false, precision = 19, scale = 2)
+    private BigDecimal amountUsd;
+
+    public PurchaseDailyTotal() {}
+
+}
@@ -0,0 +1,44 @@
+package com.example.purchase.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Local copy of one row of the Treasury rates_of_exchange dataset.
+ * Rows are written in bulk by the ingestion job through {@code TreasuryRateRepository}.
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "exchange_rates",
+        uniqueConstraints = @UniqueConstraint(name = "uk_exchange_rates_currency_effective_date",
+                columnNames = {"country_currency_desc", "effective_date"}),
+        indexes = @Index(name = "idx_exchange_rates_record_date", columnList = "record_date"))
+public class TreasuryRate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "country_currency_desc", length = 100, nullable = false)
+    private String countryCurrencyDesc;
+
+    @Column(length = 50)
+    private String currency;
+
+    @Column(name = "exchange_rate", nullable = false, precision = 19, scale = 6)
+    private BigDecimal exchangeRate;
+
+    @Column(name = "effective_date", nullable = false)
+    private LocalDate effectiveDate;
+
+    @Column(name = "record_date", nullable = false)
+    private LocalDate recordDate;
+
+    public TreasuryRate() {}
+
+}
@@ -1,5 +1,6 @@
 package com.example.purchase.exception;
 
+import com.example.purchase.domain.TreasuryCurrency;
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolation;
@@ -8,6 +9,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
@@ -24,12 +26,15 @@ import java.util.stream.Collectors;
 @RestControllerAdvice
 public class RestExceptionHandler {
 
-    private static final String TRANSACTION_DATE_MSG =
+    public static final String TRANSACTION_DATE_MSG =
             "transactionDate must be a valid date in the format YYYY-MM-DD (example: 2023-10-31)";
 
-    private static final String AMOUNT_USD_MSG =
+    public static final String AMOUNT_USD_MSG =
             "amountUsd must be a valid numeric value greater than 0 (example: 10.50)";
 
+    public static final String CURRENCY_MSG =
+            "Currency Code must be a valid 3-letter ISO code (examples: USD, CAD, JPY)";
+
     @ExceptionHandler({java.util.NoSuchElementException.class, ExchangeRateNotFoundException.class})
     public ResponseEntity<Map<String, Object>> handleNotFound(RuntimeException ex, HttpServletRequest request) {
         String msg = ex.getMessage();
@@ -88,11 +93,24 @@ public class RestExceptionHandler {
         if (isNumericType(requiredType) || "amountUsd".equalsIgnoreCase(name)) {
             return badRequest(AMOUNT_USD_MSG);
         }
+        if (TreasuryCurrency.class.equals(requiredType)) {
+            return badRequest(CURRENCY_MSG);
+        }
 
         String msg = name + " has invalid value";
         return badRequest(msg);
     }
 
+    @ExceptionHandler(MissingServletRequestParameterException.class)
+    public ResponseEntity<ErrorResponse> handleMissingParameter(MissingServletRequestParameterException ex) {
+        // A blank currency binds to null and counts as missing; it is still an invalid code to the client
+        if (ex.isMissingAfterConversion() && ex.getMethodParameter() != null
+                && TreasuryCurrency.class.equals(ex.getMethodParameter().getParameterType())) {
+            return badRequest(CURRENCY_MSG);
+        }
+        return badRequest(ex.getParameterName() + " is required");
+    }
+
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<ErrorResponse> handleHttpMessageNotReadable(HttpMessageNotReadableException ex) {
         // Walk the cause chain to find Jackson InvalidFormatException or DateTimeParseException or NumberFormatException
@@ -129,6 +147,11 @@ public class RestExceptionHandler {
         return badRequest(msg);
     }
 
+    @ExceptionHandler(InvalidDateRangeException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidDateRange(InvalidDateRangeException ex) {
+        return badRequest(ex.getMessage());
+    }
+
     @ExceptionHandler(DateTimeParseException.class)
     public ResponseEntity<ErrorResponse> handleDateTimeParse(DateTimeParseException ex) {
         return badRequest(TRANSACTION_DATE_MSG);
@@ -219,7 +242,7 @@ public class RestExceptionHandler {
         String lower = msg.toLowerCase();
         // currency mapping preserved
         if (lower.contains("treasurycurrency") || lower.contains("3-letter") || lower.contains("currency code")) {
-            return "Currency Code must be a valid 3-letter ISO code (examples: USD, CAD, JPY)";
+            return CURRENCY_MSG;
         }
         // amountUsd constraint mapping
         String path = violation.getPropertyPath() == null ? "" : violation.getPropertyPath().toString().toLowerCase();
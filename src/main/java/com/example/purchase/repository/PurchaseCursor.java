@@ -0,0 +1,39 @@
+package com.example.purchase.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position in the list of purchases ordered by (transaction date, id): the key of the last purchase returned.
+ * The next page starts right after it, whatever was inserted or deleted in between.
+ * <p>
+ * Clients get it as an opaque token; {@link #valueOf(String)} lets Spring bind the token to a request parameter.
+ */
+public record PurchaseCursor(LocalDate transactionDate, long id) {
+
+    public static PurchaseCursor after(PurchaseView last) {
+        return new PurchaseCursor(last.transactionDate(), last.id());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static PurchaseCursor valueOf(String token) {
+        String key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int separator = key.indexOf('|');
+        if (separator < 0) {
+            throw new IllegalArgumentException("not a purchase cursor: " + token);
+        }
+        try {
+            return new PurchaseCursor(LocalDate.parse(key.substring(0, separator)), Long.parseLong(key.substring(separator + 1)));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("not a purchase cursor: " + token, ex);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((transactionDate + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
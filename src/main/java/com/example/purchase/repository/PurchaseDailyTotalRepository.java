@@ -0,0 +1,137 @@
+package com.example.purchase.repository;
+
+import com.example.purchase.entity.Purchase;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JDBC access to {@code purchase_daily_totals}, the number and USD total of purchases per transaction date.
+ * <p>
+ * The totals are kept up to date incrementally: every transaction that inserts purchases adds them to their
+ * days with {@link #add(Collection)}, so they are committed, or rolled back, together with the purchases.
+ * Purchases made before the table existed were totalled when it was created ({@code V1__baseline.sql}).
+ * Purchases inserted without their totals, e.g. by an instance still running older code during a rolling
+ * deploy, are reconciled by {@link #recompute(LocalDate, LocalDate)}.
+ */
+@Repository
+public class PurchaseDailyTotalRepository {
+
+    // One row per day from parallel arrays, in date order
+    private static final String ADD_SQL = """
+            INSERT INTO purchase_daily_totals (transaction_date, purchase_count, amount_usd)
+            SELECT * FROM unnest(?::date[], ?::bigint[], ?::numeric[]) AS t (transaction_date, purchase_count, amount_usd)
+            ORDER BY transaction_date
+            ON CONFLICT (transaction_date) DO UPDATE
+            SET purchase_count = purchase_daily_totals.purchase_count + EXCLUDED.purchase_count,
+                amount_usd = purchase_daily_totals.amount_usd + EXCLUDED.amount_usd
+            """;
+
+    private static final String FIND_BETWEEN_SQL = """
+            SELECT transaction_date, purchase_count, amount_usd
+            FROM purchase_daily_totals
+            WHERE transaction_date BETWEEN ? AND ?
+            ORDER BY transaction_date
+            """;
+
+    // Conflicts with the row locks add() takes, so no purchase transaction adds to a day while it is recomputed
+    private static final String LOCK_SQL = "LOCK TABLE purchase_daily_totals IN SHARE ROW EXCLUSIVE MODE";
+
+    private static final String DELETE_BETWEEN_SQL = """
+            DELETE FROM purchase_daily_totals
+            WHERE transaction_date BETWEEN ? AND ?
+            """;
+
+    private static final String RECOMPUTE_BETWEEN_SQL = """
+            INSERT INTO purchase_daily_totals (transaction_date, purchase_count, amount_usd)
+            SELECT transaction_date, count(*), sum(amount_usd)
+            FROM purchases
+            WHERE transaction_date BETWEEN ? AND ?
+            GROUP BY transaction_date
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    public PurchaseDailyTotalRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Adds newly inserted purchases to their days' totals. Must run in the transaction that inserts them.
+     * <p>
+     * Every purchase of a day adds to the same row. Concurrent transactions that insert purchases for the same
+     * day therefore wait on that row's lock until the first one commits. Purchases on different days do not
+     * wait on each other. This is the price of totals that are exact at every commit and of reports that read
+     * one row per day. The purchases are summed per day first, and all days are written by one statement. A
+     * transaction locks each of its days once, in date order, so concurrent transactions cannot deadlock.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(Collection<Purchase> purchases) {
+        Map<LocalDate, DailyTotal> byDay = new TreeMap<>();
+        for (Purchase p : purchases) {
+            byDay.merge(p.getTransactionDate(), new DailyTotal(p.getTransactionDate(), 1, p.getAmountUsd()),
+                    (a, b) -> new DailyTotal(a.transactionDate(), a.purchaseCount() + 1, a.amountUsd().add(b.amountUsd())));
+        }
+        if (byDay.isEmpty()) {
+            return;
+        }
+        Date[] dates = new Date[byDay.size()];
+        Long[] counts = new Long[byDay.size()];
+        BigDecimal[] amounts = new BigDecimal[byDay.size()];
+        int i = 0;
+        for (DailyTotal t : byDay.values()) {
+            dates[i] = Date.valueOf(t.transactionDate());
+            counts[i] = t.purchaseCount();
+            amounts[i] = t.amountUsd();
+            i++;
+        }
+        jdbc.update(ADD_SQL, ps -> {
+            Connection con = ps.getConnection();
+            ps.setArray(1, con.createArrayOf("date", dates));
+            ps.setArray(2, con.createArrayOf("bigint", counts));
+            ps.setArray(3, con.createArrayOf("numeric", amounts));
+        });
+    }
+
+    /**
+     * Loads the totals of the days within {@code [from, to]} that have purchases, oldest first.
+     */
+    @Transactional(readOnly = true)
+    public List<DailyTotal> findBetween(LocalDate from, LocalDate to) {
+        List<DailyTotal> totals = new ArrayList<>();
+        jdbc.query(FIND_BETWEEN_SQL, rs -> {
+            totals.add(new DailyTotal(rs.getDate(1).toLocalDate(), rs.getLong(2), rs.getBigDecimal(3)));
+        }, Date.valueOf(from), Date.valueOf(to));
+        return totals;
+    }
+
+    /**
+     * Replaces the totals of the days within {@code [from, to]} with ones summed from the purchases themselves.
+     * The table is locked against {@link #add(Collection)} until the transaction ends: a purchase committed
+     * before the lock is counted here, one still being inserted adds itself once the lock is released.
+     * @return the number of days with purchases
+     */
+    @Transactional
+    public int recompute(LocalDate from, LocalDate to) {
+        jdbc.execute(LOCK_SQL);
+        jdbc.update(DELETE_BETWEEN_SQL, Date.valueOf(from), Date.valueOf(to));
+        return jdbc.update(RECOMPUTE_BETWEEN_SQL, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * Number and USD total of the purchases made on one day.
+     */
+    public record DailyTotal(LocalDate transactionDate, long purchaseCount, BigDecimal amountUsd) {
+    }
+}
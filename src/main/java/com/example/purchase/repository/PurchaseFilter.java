@@ -0,0 +1,10 @@
+package com.example.purchase.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Filters for listing purchases; every bound is inclusive and may be null.
+ */
+public record PurchaseFilter(LocalDate from, LocalDate to, BigDecimal minAmount, BigDecimal maxAmount) {
+}
@@ -0,0 +1,31 @@
+package com.example.purchase.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.YearMonth;
+
+/**
+ * Maintenance of the monthly partitions of {@code purchases} (see {@code V2__partition_purchases.sql}).
+ */
+@Repository
+public class PurchasePartitionRepository {
+
+    private final JdbcTemplate jdbc;
+
+    public PurchasePartitionRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Creates the partition for the month unless it exists, moving the month's rows out of the default partition.
+     * @return whether the partition was created
+     */
+    @Transactional
+    public boolean createPartition(YearMonth month) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT create_purchase_partition(?)", Boolean.class,
+                Date.valueOf(month.atDay(1))));
+    }
+}
@@ -3,5 +3,5 @@ package com.example.purchase.repository;
 import com.example.purchase.entity.Purchase;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface PurchaseRepository extends JpaRepository<Purchase, Long> {
+public interface PurchaseRepository extends JpaRepository<Purchase, Long>, PurchaseViewQueries {
 }
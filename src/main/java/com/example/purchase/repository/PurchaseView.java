@@ -0,0 +1,14 @@
+package com.example.purchase.repository;
+
+import com.example.purchase.entity.Purchase;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Read-only view of a purchase, as the conversion read paths need it. Unlike a {@link Purchase} entity it is
+ * never managed: loading one through {@link PurchaseViewQueries} creates no persistence context entry or
+ * dirty-checking snapshot.
+ */
+public record PurchaseView(Long id, String description, LocalDate transactionDate, BigDecimal amountUsd) {
+}
@@ -0,0 +1,40 @@
+package com.example.purchase.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Reads of purchases as {@link PurchaseView}s, part of {@link PurchaseRepository}. They run as plain JDBC
+ * queries in read-only transactions, so they go to the read replica when there is one.
+ */
+public interface PurchaseViewQueries {
+
+    Optional<PurchaseView> findViewById(Long id);
+
+    /**
+     * @return the purchases with the given ids, in no particular order; unknown ids are skipped
+     */
+    List<PurchaseView> findViewsByIdIn(Collection<Long> ids);
+
+    /**
+     * Loads up to {@code limit} purchases matching the filter, ordered by transaction date then id, starting
+     * right after the cursor. Served by the (transaction_date, id) index, which the query seeks into instead of
+     * skipping rows, so every page costs the same however deep it is.
+     * @param after the last purchase of the previous page, or null for the first page
+     */
+    List<PurchaseView> findViewsPage(PurchaseFilter filter, PurchaseCursor after, int limit);
+
+    /**
+     * @return the distinct transaction dates of the purchases in {@code [from, to]}, oldest first
+     */
+    List<LocalDate> findTransactionDatesBetween(LocalDate from, LocalDate to);
+
+    /**
+     * Streams the purchases in {@code [from, to]}, ordered by transaction date then id, through a forward-only
+     * cursor. Must be consumed inside a read-only transaction and closed afterwards.
+     */
+    Stream<PurchaseView> streamViewsByTransactionDateBetween(LocalDate from, LocalDate to);
+}
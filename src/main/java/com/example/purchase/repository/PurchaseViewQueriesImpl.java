@@ -0,0 +1,104 @@
+package com.example.purchase.repository;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * {@link PurchaseViewQueries} over {@link JdbcClient}. Each row is mapped straight into a {@link PurchaseView};
+ * there is no JPQL to translate and no entity, so a load allocates less than {@code findById}. Compare the
+ * {@code gc.alloc.rate.norm} of {@code PurchaseReadBenchmark} run with {@code -prof gc}.
+ */
+class PurchaseViewQueriesImpl implements PurchaseViewQueries {
+
+    private static final String SELECT = "SELECT id, description, transaction_date, amount_usd FROM purchases ";
+
+    // Rows fetched per round trip by a streaming cursor
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final RowMapper<PurchaseView> ROW_MAPPER = (rs, rowNum) -> new PurchaseView(
+            rs.getLong(1), rs.getString(2), rs.getObject(3, LocalDate.class), rs.getBigDecimal(4));
+
+    private final JdbcClient jdbc;
+
+    PurchaseViewQueriesImpl(JdbcClient jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<PurchaseView> findViewById(Long id) {
+        return jdbc.sql(SELECT + "WHERE id = ?").param(id).query(ROW_MAPPER).optional();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PurchaseView> findViewsByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbc.sql(SELECT + "WHERE id IN (:ids)").param("ids", ids).query(ROW_MAPPER).list();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PurchaseView> findViewsPage(PurchaseFilter filter, PurchaseCursor after, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT).append("WHERE TRUE");
+        Map<String, Object> params = new HashMap<>();
+        if (filter.from() != null) {
+            sql.append(" AND transaction_date >= :from");
+            params.put("from", filter.from());
+        }
+        if (filter.to() != null) {
+            sql.append(" AND transaction_date <= :to");
+            params.put("to", filter.to());
+        }
+        if (filter.minAmount() != null) {
+            sql.append(" AND amount_usd >= :minAmount");
+            params.put("minAmount", filter.minAmount());
+        }
+        if (filter.maxAmount() != null) {
+            sql.append(" AND amount_usd <= :maxAmount");
+            params.put("maxAmount", filter.maxAmount());
+        }
+        if (after != null) {
+            // A row comparison, so the index is sought to the cursor rather than filtered on two columns
+            // The plain date bound is implied by it, but only that one lets the planner skip earlier partitions
+            sql.append(" AND (transaction_date, id) > (:afterDate, :afterId) AND transaction_date >= :afterDate");
+            params.put("afterDate", after.transactionDate());
+            params.put("afterId", after.id());
+        }
+        sql.append(" ORDER BY transaction_date, id LIMIT :limit");
+        params.put("limit", limit);
+        return jdbc.sql(sql.toString()).params(params).query(ROW_MAPPER).list();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<LocalDate> findTransactionDatesBetween(LocalDate from, LocalDate to) {
+        return jdbc.sql("SELECT DISTINCT transaction_date FROM purchases WHERE transaction_date BETWEEN ? AND ? ORDER BY 1")
+                .params(from, to)
+                .query((rs, rowNum) -> rs.getObject(1, LocalDate.class))
+                .list();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY, readOnly = true)
+    public Stream<PurchaseView> streamViewsByTransactionDateBetween(LocalDate from, LocalDate to) {
+        // PostgreSQL only streams with a fetch size inside a transaction; otherwise it reads every row at once
+        return jdbc.sql(SELECT + "WHERE transaction_date BETWEEN ? AND ? ORDER BY transaction_date, id")
+                .params(from, to)
+                .withFetchSize(STREAM_FETCH_SIZE)
+                .query(ROW_MAPPER)
+                .stream();
+    }
+}
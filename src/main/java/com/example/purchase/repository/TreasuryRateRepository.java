@@ -0,0 +1,143 @@
+package com.example.purchase.repository;
+
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import com.example.purchase.client.TreasuryRateRecord;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JDBC access to the {@code exchange_rates} table, the local copy of the Treasury dataset.
+ * Queries are timed as {@code treasury.store.queries}, tagged by query.
+ */
+@Repository
+public class TreasuryRateRepository {
+
+    static final int BATCH_SIZE = 1000;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO exchange_rates (country_currency_desc, currency, exchange_rate, effective_date, record_date)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (country_currency_desc, effective_date) DO UPDATE
+            SET currency = EXCLUDED.currency,
+                exchange_rate = EXCLUDED.exchange_rate,
+                record_date = EXCLUDED.record_date
+            WHERE EXCLUDED.record_date >= exchange_rates.record_date
+            """;
+
+    private static final String MARK_COMPLETE_SQL = """
+            INSERT INTO rate_ingestion_state (id, watermark)
+            VALUES (1, ?)
+            ON CONFLICT (id) DO UPDATE
+            SET watermark = greatest(rate_ingestion_state.watermark, EXCLUDED.watermark)
+            """;
+
+    private static final String FIND_BETWEEN_SQL = """
+            SELECT w.watermark, r.effective_date, r.exchange_rate
+            FROM (SELECT max(watermark) AS watermark FROM rate_ingestion_state) w
+            LEFT JOIN exchange_rates r
+                ON r.country_currency_desc = ? AND r.effective_date BETWEEN ? AND ?
+            ORDER BY r.effective_date DESC
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final ObservationRegistry observations;
+
+    public TreasuryRateRepository(JdbcTemplate jdbc, ObservationRegistry observations) {
+        this.jdbc = jdbc;
+        this.observations = observations;
+    }
+
+    /**
+     * Inserts or updates the given records in JDBC batches. When the same (currency, effective date)
+     * is seen more than once, the record with the latest record date wins.
+     * @return the number of distinct records written
+     */
+    @Transactional
+    public int upsertAll(Collection<TreasuryRateRecord> records) {
+        // A rewritten multi-row INSERT ... ON CONFLICT must not touch the same row twice
+        Map<String, TreasuryRateRecord> latest = new LinkedHashMap<>();
+        for (TreasuryRateRecord r : records) {
+            latest.merge(r.countryCurrencyDesc() + '|' + r.effectiveDate(), r,
+                    (a, b) -> b.recordDate().isBefore(a.recordDate()) ? a : b);
+        }
+        List<TreasuryRateRecord> rows = List.copyOf(latest.values());
+
+        query("upsert").observe(() -> jdbc.batchUpdate(UPSERT_SQL, rows, BATCH_SIZE, (ps, r) -> {
+            ps.setString(1, r.countryCurrencyDesc());
+            ps.setString(2, r.currency());
+            ps.setBigDecimal(3, r.exchangeRate());
+            ps.setDate(4, Date.valueOf(r.effectiveDate()));
+            ps.setDate(5, Date.valueOf(r.recordDate()));
+        }));
+        return rows.size();
+    }
+
+    /**
+     * Returns the most recent record date stored, i.e. how far ingestion has progressed. Records of that date
+     * may be only partly stored if a run is under way or stopped partway.
+     */
+    public Optional<LocalDate> findWatermark() {
+        Date watermark = query("watermark").observe(
+                () -> jdbc.queryForObject("SELECT max(record_date) FROM exchange_rates", Date.class));
+        return Optional.ofNullable(watermark).map(Date::toLocalDate);
+    }
+
+    /**
+     * Records that every record up to and including the record date is stored. Called when an ingestion run
+     * has finished; the watermark never moves back.
+     */
+    @Transactional
+    public void markCompleteThrough(LocalDate recordDate) {
+        query("mark_complete").observe(() -> jdbc.update(MARK_COMPLETE_SQL, Date.valueOf(recordDate)));
+    }
+
+    /**
+     * Loads every stored rate for the currency effective within {@code [from, to]}, most recent first,
+     * together with the completed-ingestion watermark in the same round trip. Served by the
+     * (country_currency_desc, effective_date) index.
+     * @return empty if no ingestion run has finished yet
+     */
+    public Optional<StoredWindow> findBetween(String countryCurrencyDesc, LocalDate from, LocalDate to) {
+        return query("find_between").observe(() -> jdbc.query(FIND_BETWEEN_SQL, rs -> {
+            LocalDate watermark = null;
+            List<ExchangeRate> rates = new ArrayList<>();
+            while (rs.next()) {
+                Date w = rs.getDate("watermark");
+                if (w == null) {
+                    return Optional.empty();
+                }
+                watermark = w.toLocalDate();
+                Date effectiveDate = rs.getDate("effective_date");
+                if (effectiveDate != null) {
+                    rates.add(new ExchangeRate(effectiveDate.toLocalDate(), rs.getBigDecimal("exchange_rate")));
+                }
+            }
+            return watermark == null ? Optional.empty() : Optional.of(new StoredWindow(watermark, rates));
+        }, countryCurrencyDesc, Date.valueOf(from), Date.valueOf(to)));
+    }
+
+    private Observation query(String name) {
+        return Observation.createNotStarted("treasury.store.queries", observations)
+                .lowCardinalityKeyValue("query", name);
+    }
+
+    /**
+     * Result of {@link #findBetween}.
+     * @param watermark latest record date of a finished ingestion run; the store is complete up to this date
+     * @param rates rates in the requested range, most recent first
+     */
+    public record StoredWindow(LocalDate watermark, List<ExchangeRate> rates) {
+    }
+}
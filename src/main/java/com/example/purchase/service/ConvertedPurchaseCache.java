@@ -0,0 +1,116 @@
+package com.example.purchase.service;
+
+import com.example.purchase.client.SingleFlight;
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.PurchaseResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of converted purchases per (purchase id, currency).
+ * <p>
+ * A purchase's date and amount never change after it is created, and a conversion dated before the settle
+ * window ({@code treasury.rates.settle-days}) uses a rate Treasury will not revise, so such a conversion is
+ * reused until the purchase itself changes. A conversion inside the window may still pick up a newly published
+ * rate and only lives for {@code purchase.response-cache.unsettled-ttl}. Any code path that updates or
+ * deletes a purchase must call {@link #invalidate(Long)}. Eviction is otherwise size based (Caffeine's W-TinyLFU).
+ * A {@linkplain PurchaseResponse#isStale() stale} conversion, made with a fallback rate while Treasury was
+ * unreachable, is returned but never cached.
+ * <p>
+ * Misses are loaded outside the cache: Caffeine's own loading runs the loader while holding a lock inside
+ * its map, and a request thread that is virtual then pins its carrier for the whole database and Treasury
+ * round trip, so the rate lookups it waits for may never get a carrier to run on. Concurrent misses for the
+ * same key still share one load.
+ * Size, hits, misses and evictions are published as the {@code cache.*} meters of cache {@code purchase.responses}.
+ */
+@Component
+public class ConvertedPurchaseCache implements MeterBinder {
+
+    // Caffeine caps expiry durations at about 150 years, so this never expires in practice
+    private static final Duration FOREVER = Duration.ofNanos(Long.MAX_VALUE);
+
+    private final Cache<Key, PurchaseResponse> cache;
+    private final SingleFlight<Key, PurchaseResponse> loading = new SingleFlight<>();
+
+    /**
+     * @param maximumSize maximum number of cached responses
+     * @param clock clock used to decide which conversions are settled
+     * @param settleDays how many days back from today Treasury may still publish new rates
+     * @param unsettledTtl how long a conversion inside the settle window is reused
+     */
+    public ConvertedPurchaseCache(@Value("${purchase.response-cache.maximum-size:100000}") long maximumSize,
+                                  Clock clock,
+                                  @Value("${treasury.rates.settle-days:30}") int settleDays,
+                                  @Value("${purchase.response-cache.unsettled-ttl:PT5M}") Duration unsettledTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(Expiry.<Key, PurchaseResponse>writing((key, response) ->
+                        isSettled(response, LocalDate.now(clock).minusDays(settleDays)) ? FOREVER : unsettledTtl))
+                .recordStats()
+                .build();
+    }
+
+    private static boolean isSettled(PurchaseResponse response, LocalDate cutoff) {
+        return response.getTransactionDate() != null && response.getTransactionDate().isBefore(cutoff);
+    }
+
+    /**
+     * Returns the cached response, or computes and caches it. Failures and stale conversions are not cached.
+     */
+    public PurchaseResponse get(Long id, TreasuryCurrency currency, Supplier<PurchaseResponse> loader) {
+        Key key = new Key(id, currency);
+        PurchaseResponse cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        return loading.execute(key, () -> {
+            PurchaseResponse loaded = loader.get();
+            if (!loaded.isStale()) {
+                cache.put(key, loaded);
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Returns the cached response, or {@code null}, without loading it or counting a hit or miss.
+     */
+    public PurchaseResponse getIfPresent(Long id, TreasuryCurrency currency) {
+        return cache.policy().getIfPresentQuietly(new Key(id, currency));
+    }
+
+    /**
+     * Drops every cached conversion of the purchase. Scans the cache, which is fine for the rare
+     * update or delete but not for a hot path.
+     */
+    public void invalidate(Long id) {
+        cache.asMap().keySet().removeIf(k -> k.id().equals(id));
+    }
+
+    /**
+     * Hit, miss and eviction counts since startup.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics<>(cache, "purchase.responses", Tags.empty()).bindTo(registry);
+    }
+
+    private record Key(Long id, TreasuryCurrency currency) {}
+}
@@ -0,0 +1,256 @@
+package com.example.purchase.service;
+
+import com.example.purchase.dto.BulkPurchaseResponse;
+import com.example.purchase.dto.BulkPurchaseResult;
+import com.example.purchase.dto.PurchaseRequest;
+import com.example.purchase.entity.Purchase;
+import com.example.purchase.exception.RestExceptionHandler;
+import com.example.purchase.repository.PurchaseDailyTotalRepository;
+import com.example.purchase.repository.PurchaseRepository;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates purchases in bulk from a JSON array or an NDJSON stream.
+ * <p>
+ * Elements are parsed and validated one at a time with the same constraints as {@link PurchaseRequest}.
+ * Valid rows are inserted in chunks, one transaction per chunk, so Hibernate can send them as JDBC batches.
+ * Each chunk is added to the daily totals in its own transaction.
+ * <p>
+ * Chunks are committed as the input is read, so malformed input never fails the whole request: an NDJSON line
+ * that is not valid JSON is rejected like an invalid element, and a JSON array that stops being valid JSON
+ * ends the read with the rows before it saved and reported, and an error for the rest.
+ */
+@Service
+public class PurchaseBulkService {
+
+    private static final Logger log = LoggerFactory.getLogger(PurchaseBulkService.class);
+
+    private final PurchaseRepository repo;
+    private final PurchaseDailyTotalRepository dailyTotals;
+    private final Validator validator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate tx;
+    private final ObjectReader nodeReader;
+    private final ObjectReader lineReader;
+    private final ObjectReader requestReader;
+    private final int chunkSize;
+
+    public PurchaseBulkService(PurchaseRepository repo,
+                               PurchaseDailyTotalRepository dailyTotals,
+                               Validator validator,
+                               EntityManager entityManager,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper mapper,
+                               @Value("${purchase.bulk.chunk-size:500}") int chunkSize) {
+        this.repo = repo;
+        this.dailyTotals = dailyTotals;
+        this.validator = validator;
+        this.entityManager = entityManager;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.nodeReader = mapper.readerFor(JsonNode.class);
+        this.lineReader = nodeReader.with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+        this.requestReader = mapper.readerFor(PurchaseRequest.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads purchases from the stream and saves every valid one.
+     * @param in a JSON array of purchases, or one purchase object per line
+     * @param ndjson whether the stream is NDJSON, which is read line by line
+     * @return per-element IDs or errors, in input order, and for JSON that stops being valid, the reason the
+     *         rest of the stream was not read
+     * @throws IOException if the stream cannot be read
+     */
+    public BulkPurchaseResponse createPurchases(InputStream in, boolean ndjson) throws IOException {
+        List<BulkPurchaseResult> results = new ArrayList<>();
+        List<Purchase> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+
+        String error = null;
+        if (ndjson) {
+            readLines(in, chunk, chunkIndexes, results);
+        } else {
+            error = readValues(in, chunk, chunkIndexes, results);
+        }
+        if (!chunk.isEmpty()) {
+            saveChunk(chunk, chunkIndexes, results);
+        }
+
+        BulkPurchaseResponse response = new BulkPurchaseResponse(results, error);
+        log.info("Bulk purchase request processed: {} created, {} rejected{}", response.getCreated(), response.getRejected(),
+                error == null ? "" : ", input not read to the end");
+        return response;
+    }
+
+    /**
+     * Reads one element per non-blank line; a line that is not a single valid JSON value is rejected.
+     */
+    private void readLines(InputStream in, List<Purchase> chunk, List<Integer> chunkIndexes,
+                           List<BulkPurchaseResult> results) throws IOException {
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            int index = results.size();
+            JsonNode node;
+            try {
+                node = lineReader.readTree(line);
+            } catch (JsonProcessingException ex) {
+                results.add(BulkPurchaseResult.rejected(index, List.of("Malformed JSON")));
+                continue;
+            }
+            accept(node, index, chunk, chunkIndexes, results);
+        }
+    }
+
+    /**
+     * Reads the elements of a root-level array, or a sequence of root values, until the input ends or stops
+     * being valid JSON; a parser cannot resume after that.
+     * @return the reason the rest of the input was not read, or null if it was read to the end
+     */
+    private String readValues(InputStream in, List<Purchase> chunk, List<Integer> chunkIndexes,
+                              List<BulkPurchaseResult> results) throws IOException {
+        try (MappingIterator<JsonNode> nodes = nodeReader.readValues(in)) {
+            while (nodes.hasNextValue()) {
+                accept(nodes.nextValue(), results.size(), chunk, chunkIndexes, results);
+            }
+            return null;
+        } catch (JsonProcessingException ex) {
+            JsonLocation at = ex.getLocation();
+            String where = at == null ? "" : " at line " + at.getLineNr() + ", column " + at.getColumnNr();
+            return "Malformed JSON" + where + "; elements from index " + results.size() + " on were not read";
+        }
+    }
+
+    /**
+     * Validates one element and queues it for saving, or records why it was rejected.
+     */
+    private void accept(JsonNode node, int index, List<Purchase> chunk, List<Integer> chunkIndexes,
+                        List<BulkPurchaseResult> results) {
+        List<String> errors = new ArrayList<>();
+        PurchaseRequest req = parse(node, errors);
+        if (req != null) {
+            validate(req, errors);
+        }
+
+        if (errors.isEmpty()) {
+            chunk.add(toEntity(req));
+            chunkIndexes.add(index);
+            results.add(null); // filled in when the chunk is saved
+            if (chunk.size() == chunkSize) {
+                saveChunk(chunk, chunkIndexes, results);
+            }
+        } else {
+            results.add(BulkPurchaseResult.rejected(index, errors));
+        }
+    }
+
+    private PurchaseRequest parse(JsonNode node, List<String> errors) {
+        try {
+            return requestReader.treeToValue(node, PurchaseRequest.class);
+        } catch (JsonProcessingException ex) {
+            errors.add(parseError(ex));
+            return null;
+        }
+    }
+
+    private String parseError(JsonProcessingException ex) {
+        if (ex instanceof JsonMappingException jme) {
+            for (JsonMappingException.Reference ref : jme.getPath()) {
+                if ("transactionDate".equalsIgnoreCase(ref.getFieldName())) {
+                    return RestExceptionHandler.TRANSACTION_DATE_MSG;
+                }
+                if ("amountUsd".equalsIgnoreCase(ref.getFieldName())) {
+                    return RestExceptionHandler.AMOUNT_USD_MSG;
+                }
+            }
+        }
+        return "Malformed purchase";
+    }
+
+    private void validate(PurchaseRequest req, List<String> errors) {
+        Set<ConstraintViolation<PurchaseRequest>> violations = validator.validate(req);
+        for (ConstraintViolation<PurchaseRequest> v : violations) {
+            String field = v.getPropertyPath().toString();
+            String constraint = v.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName();
+            String msg;
+            if ("NotNull".equals(constraint) || "NotBlank".equals(constraint)) {
+                msg = field + " is required";
+            } else if ("amountUsd".equals(field)) {
+                msg = RestExceptionHandler.AMOUNT_USD_MSG;
+            } else {
+                msg = field + " " + v.getMessage();
+            }
+            if (!errors.contains(msg)) {
+                errors.add(msg);
+            }
+        }
+    }
+
+    private static Purchase toEntity(PurchaseRequest req) {
+        // Round amount to 2 decimal places
+        return new Purchase(
+                req.getDescription(),
+                req.getTransactionDate(),
+                req.getAmountUsd().setScale(2, RoundingMode.HALF_UP)
+        );
+    }
+
+    /**
+     * Inserts one chunk in its own transaction and records the outcome of each row.
+     * The chunk lists are cleared afterwards.
+     */
+    private void saveChunk(List<Purchase> chunk, List<Integer> indexes, List<BulkPurchaseResult> results) {
+        try {
+            tx.executeWithoutResult(status -> {
+                repo.saveAll(chunk);
+                dailyTotals.add(chunk);
+                entityManager.flush();
+                entityManager.clear();
+            });
+            for (int i = 0; i < chunk.size(); i++) {
+                int index = indexes.get(i);
+                results.set(index, BulkPurchaseResult.created(index, chunk.get(i).getId()));
+            }
+        } catch (DataAccessException | PersistenceException | TransactionException ex) {
+            log.warn("Bulk purchase chunk of {} rows could not be saved: {}", chunk.size(), ex.toString());
+            for (int index : indexes) {
+                results.set(index, BulkPurchaseResult.rejected(index, List.of("Purchase could not be saved")));
+            }
+        }
+        chunk.clear();
+        indexes.clear();
+    }
+}
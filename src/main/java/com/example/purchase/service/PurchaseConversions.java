@@ -0,0 +1,125 @@
+package com.example.purchase.service;
+
+import com.example.purchase.client.TreasuryClient;
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.PurchaseResponse;
+import com.example.purchase.exception.ExchangeRateNotFoundException;
+import com.example.purchase.repository.PurchaseView;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Conversion helpers shared by the single, batch and export read paths so they all produce identical rows.
+ */
+final class PurchaseConversions {
+
+    /**
+     * Provenance reported with every converted amount and rate.
+     */
+    static final String RATE_SOURCE = "U.S. Treasury Reporting Rates of Exchange";
+
+    private PurchaseConversions() {}
+
+    /**
+     * Maps a normalized ISO code to the value Treasury filters on, falling back to the code itself.
+     */
+    static String treasuryValueFor(String code) {
+        String treasuryValue = TreasuryCurrency.descForCode(code);
+        return treasuryValue == null ? code : treasuryValue;
+    }
+
+    static PurchaseResponse toUsdResponse(PurchaseView p) {
+        PurchaseResponse resp = new PurchaseResponse();
+        resp.setId(p.id());
+        resp.setDescription(p.description());
+        resp.setTransactionDate(p.transactionDate());
+        resp.setAmountUsd(p.amountUsd());
+        resp.setTargetCurrency("USD");
+        resp.setExchangeRate(BigDecimal.ONE);
+        resp.setConvertedAmount(p.amountUsd());
+        return resp;
+    }
+
+    static PurchaseResponse toConvertedResponse(PurchaseView p, String code, ExchangeRate rate) {
+        BigDecimal converted = p.amountUsd().multiply(rate.getRate()).setScale(2, RoundingMode.HALF_UP);
+        PurchaseResponse r = new PurchaseResponse();
+        r.setId(p.id());
+        r.setDescription(p.description());
+        r.setTransactionDate(p.transactionDate());
+        r.setAmountUsd(p.amountUsd());
+        r.setTargetCurrency(code);
+        r.setExchangeRate(rate.getRate().setScale(6, RoundingMode.HALF_UP));
+        r.setConvertedAmount(converted);
+        r.setRateEffectiveDate(rate.getRateDate());
+        r.setRateSource(RATE_SOURCE);
+        r.setStale(rate.isStale());
+        return r;
+    }
+
+    /**
+     * Builds a row for a purchase that has no rate in the six-month window; rate and amount are left empty.
+     */
+    static PurchaseResponse toUnconvertedResponse(PurchaseView p, String code) {
+        PurchaseResponse r = new PurchaseResponse();
+        r.setId(p.id());
+        r.setDescription(p.description());
+        r.setTransactionDate(p.transactionDate());
+        r.setAmountUsd(p.amountUsd());
+        r.setTargetCurrency(code);
+        return r;
+    }
+
+    /**
+     * The last purchase date a rate effective on {@code rateDate} may convert, i.e. the last date whose six-month
+     * window still reaches back to it. Stepped by day because {@code minusMonths} clamps at month ends.
+     */
+    static LocalDate lastDateWithinSixMonthsOf(LocalDate rateDate) {
+        LocalDate last = rateDate.plusMonths(6);
+        while (!last.plusDays(1).minusMonths(6).isAfter(rateDate)) {
+            last = last.plusDays(1);
+        }
+        return last;
+    }
+
+    /**
+     * Starts a rate lookup once one of the permits is free, waiting for an earlier lookup to finish if need be;
+     * the permit is released when the lookup completes.
+     */
+    static CompletableFuture<Optional<ExchangeRate>> lookUpRate(TreasuryClient treasuryClient, Executor executor,
+                                                                Semaphore permits, LocalDate date, String treasuryValue) {
+        permits.acquireUninterruptibly();
+        try {
+            return treasuryClient.findRateOnOrBeforeWithinSixMonthsAsync(date, treasuryValue, executor)
+                    .whenComplete((rate, ex) -> permits.release());
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Waits for a lookup and rethrows its failure as is, rather than wrapped in a {@link CompletionException}.
+     */
+    static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw ex;
+        }
+    }
+
+    static ExchangeRateNotFoundException rateNotFound(LocalDate txDate) {
+        return new ExchangeRateNotFoundException("No exchange rate available within 6 months on-or-before " + txDate);
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.purchase.service;
+
+import com.example.purchase.client.TreasuryClient;
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.ExportFormat;
+import com.example.purchase.dto.PurchaseResponse;
+import com.example.purchase.repository.PurchaseRepository;
+import com.example.purchase.repository.PurchaseView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Streams converted purchases for a date range as NDJSON or CSV.
+ * <p>
+ * The rate of every transaction date in the range is looked up first, concurrently and outside any transaction.
+ * Rows are then read as {@link PurchaseView}s through a database cursor and written one at a time, so no
+ * persistence context grows with the export, and the read-only transaction holding the cursor does no
+ * Treasury or rate store round trips. Memory use does not depend on the number of rows exported.
+ */
+@Service
+public class PurchaseExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(PurchaseExportService.class);
+    private static final int FLUSH_EVERY = 1000;
+    private static final String CSV_HEADER =
+            "id,description,transactionDate,amountUsd,targetCurrency,exchangeRate,convertedAmount";
+
+    private final PurchaseRepository repo;
+    private final TreasuryClient treasuryClient;
+    private final ObjectMapper mapper;
+    private final TransactionTemplate readOnlyTx;
+    private final Executor rateLookupExecutor;
+    private final int maxConcurrentLookups;
+
+    /**
+     * @param rateLookupExecutor runs the per-date rate lookups
+     * @param maxConcurrentLookups how many rate lookups one export may have in flight at once
+     */
+    public PurchaseExportService(PurchaseRepository repo,
+                                 TreasuryClient treasuryClient,
+                                 ObjectMapper mapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Qualifier("applicationTaskExecutor") Executor rateLookupExecutor,
+                                 @Value("${purchase.rate-lookups.max-concurrency:16}") int maxConcurrentLookups) {
+        this.repo = repo;
+        this.treasuryClient = treasuryClient;
+        this.mapper = mapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.rateLookupExecutor = rateLookupExecutor;
+        this.maxConcurrentLookups = maxConcurrentLookups;
+    }
+
+    /**
+     * Writes every purchase with a transaction date in {@code [from, to]}, converted to the given currency.
+     * Purchases without a rate in the six-month window are written with empty rate and converted amount.
+     * @param from first transaction date, inclusive
+     * @param to last transaction date, inclusive
+     * @param currency the target currency
+     * @param format output format
+     * @param out destination; flushed periodically but not closed
+     * @return the number of rows written
+     */
+    public long export(LocalDate from, LocalDate to, TreasuryCurrency currency, ExportFormat format, OutputStream out) {
+        String code = currency.getCurrencyCode();
+        log.debug("Exporting purchases from {} to {} in {} as {}", from, to, code, format);
+        String treasuryValue = currency.getDesc();
+        Map<LocalDate, Optional<ExchangeRate>> rates = currency == TreasuryCurrency.UNITED_STATES_DOLLAR
+                ? Map.of() : lookUpRates(from, to, treasuryValue);
+
+        Long count = readOnlyTx.execute(status -> {
+            try (Stream<PurchaseView> purchases = repo.streamViewsByTransactionDateBetween(from, to)) {
+                RowWriter writer = format == ExportFormat.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+                long rows = writeRows(purchases.iterator(), code, treasuryValue, rates, writer);
+                writer.finish();
+                return rows;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+
+        log.info("Exported {} purchases", count);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Looks up the rate of every transaction date in the range once, a bounded number at a time.
+     */
+    private Map<LocalDate, Optional<ExchangeRate>> lookUpRates(LocalDate from, LocalDate to, String treasuryValue) {
+        List<LocalDate> dates = repo.findTransactionDatesBetween(from, to);
+        Semaphore permits = new Semaphore(maxConcurrentLookups);
+        Map<LocalDate, CompletableFuture<Optional<ExchangeRate>>> lookups = new LinkedHashMap<>();
+        for (LocalDate date : dates) {
+            lookups.put(date, PurchaseConversions.lookUpRate(treasuryClient, rateLookupExecutor, permits, date, treasuryValue));
+        }
+        Map<LocalDate, Optional<ExchangeRate>> rates = new HashMap<>();
+        lookups.forEach((date, lookup) -> rates.put(date, PurchaseConversions.await(lookup)));
+        return rates;
+    }
+
+    private long writeRows(Iterator<PurchaseView> purchases, String code, String treasuryValue,
+                           Map<LocalDate, Optional<ExchangeRate>> rates, RowWriter writer) throws IOException {
+        long rows = 0;
+        while (purchases.hasNext()) {
+            PurchaseView p = purchases.next();
+            PurchaseResponse row;
+            if (code.equals("USD")) {
+                row = PurchaseConversions.toUsdResponse(p);
+            } else {
+                // A date is only missing if its first purchase was created after the rates were looked up
+                Optional<ExchangeRate> rate = rates.get(p.transactionDate());
+                if (rate == null) {
+                    rate = treasuryClient.findRateOnOrBeforeWithinSixMonths(p.transactionDate(), treasuryValue);
+                    rates.put(p.transactionDate(), rate);
+                }
+                row = rate.map(r -> PurchaseConversions.toConvertedResponse(p, code, r))
+                        .orElseGet(() -> PurchaseConversions.toUnconvertedResponse(p, code));
+            }
+            writer.write(row);
+
+            if (++rows % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        return rows;
+    }
+
+    private interface RowWriter {
+        void write(PurchaseResponse row) throws IOException;
+
+        void flush() throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final ObjectWriter rowWriter;
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            this.rowWriter = mapper.writerFor(PurchaseResponse.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            this.generator = mapper.getFactory().createGenerator(out);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Rows are separated by newlines written below, not by the default space
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(PurchaseResponse row) throws IOException {
+            rowWriter.writeValue(generator, row);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            this.writer.write(CSV_HEADER);
+            this.writer.write('\n');
+        }
+
+        @Override
+        public void write(PurchaseResponse row) throws IOException {
+            writer.write(String.valueOf(row.getId()));
+            writer.write(',');
+            writeQuoted(row.getDescription());
+            writer.write(',');
+            writer.write(row.getTransactionDate().toString());
+            writer.write(',');
+            writeDecimal(row.getAmountUsd());
+            writer.write(',');
+            writer.write(row.getTargetCurrency());
+            writer.write(',');
+            writeDecimal(row.getExchangeRate());
+            writer.write(',');
+            writeDecimal(row.getConvertedAmount());
+            writer.write('\n');
+        }
+
+        private void writeDecimal(BigDecimal value) throws IOException {
+            if (value != null) {
+                writer.write(value.toPlainString());
+            }
+        }
+
+        private void writeQuoted(String value) throws IOException {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.purchase.service;
+
+import com.example.purchase.repository.PurchasePartitionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.YearMonth;
+
+/**
+ * Keeps a partition of {@code purchases} ready for the current month and the next few, so new purchases
+ * never land in the default partition. Months it missed, e.g. while the application was down, are still
+ * created on the next run, taking their rows out of the default partition.
+ */
+@Service
+public class PurchasePartitionService {
+
+    private static final Logger log = LoggerFactory.getLogger(PurchasePartitionService.class);
+
+    private final PurchasePartitionRepository partitions;
+    private final Clock clock;
+    private final int monthsAhead;
+
+    public PurchasePartitionService(PurchasePartitionRepository partitions,
+                                    Clock clock,
+                                    @Value("${purchase.partitions.months-ahead:3}") int monthsAhead) {
+        this.partitions = partitions;
+        this.clock = clock;
+        this.monthsAhead = monthsAhead;
+    }
+
+    /**
+     * Scheduled entry point; failures are logged and retried on the next run.
+     */
+    @Scheduled(cron = "${purchase.partitions.cron:-}")
+    public void scheduledCreatePartitions() {
+        try {
+            createPartitions();
+        } catch (RuntimeException ex) {
+            log.warn("Purchase partition maintenance failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Creates the missing partitions from the current month to {@code months-ahead} months ahead.
+     * @return the number of partitions created
+     */
+    public int createPartitions() {
+        YearMonth current = YearMonth.now(clock);
+        int created = 0;
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (partitions.createPartition(month)) {
+                log.info("Created purchase partition for {}", month);
+                created++;
+            }
+        }
+        return created;
+    }
+}
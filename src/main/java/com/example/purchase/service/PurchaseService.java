@@ -1,21 +1,40 @@
 package com.example.purchase.service;
 
 import com.example.purchase.client.TreasuryClient;
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
 import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.PurchasePage;
 import com.example.purchase.dto.PurchaseRequest;
 import com.example.purchase.dto.PurchaseResponse;
 import com.example.purchase.entity.Purchase;
-import com.example.purchase.exception.ExchangeRateNotFoundException;
+import com.example.purchase.repository.PurchaseCursor;
+import com.example.purchase.repository.PurchaseDailyTotalRepository;
+import com.example.purchase.repository.PurchaseFilter;
 import com.example.purchase.repository.PurchaseRepository;
+import com.example.purchase.repository.PurchaseView;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
 @Service
 public class PurchaseService {
@@ -23,21 +42,45 @@ public class PurchaseService {
     private static final Logger log = LoggerFactory.getLogger(PurchaseService.class);
 
     private final PurchaseRepository repo;
+    private final PurchaseDailyTotalRepository dailyTotals;
     private final TreasuryClient treasuryClient;
+    private final Executor rateLookupExecutor;
+    private final int maxConcurrentLookups;
+    private final ConvertedPurchaseCache responseCache;
+    private final ObservationRegistry observations;
 
-    public PurchaseService(PurchaseRepository repo, TreasuryClient treasuryClient) {
+    /**
+     * @param dailyTotals per-day totals, updated with every purchase created
+     * @param rateLookupExecutor runs batch rate lookups; Spring's task executor uses virtual threads
+     *                           when {@code spring.threads.virtual.enabled} is set
+     * @param maxConcurrentLookups how many rate lookups one batch or list request may have in flight at once
+     * @param responseCache cache of single-purchase conversions
+     * @param observations records the {@code purchase.conversion}, {@code purchase.conversion.batch} and
+     *                     {@code purchase.repository} timers; with tracing, each is a span
+     */
+    public PurchaseService(PurchaseRepository repo,
+                           PurchaseDailyTotalRepository dailyTotals,
+                           TreasuryClient treasuryClient,
+                           @Qualifier("applicationTaskExecutor") Executor rateLookupExecutor,
+                           @Value("${purchase.rate-lookups.max-concurrency:16}") int maxConcurrentLookups,
+                           ConvertedPurchaseCache responseCache,
+                           ObservationRegistry observations) {
         this.repo = repo;
+        this.dailyTotals = dailyTotals;
         this.treasuryClient = treasuryClient;
+        this.rateLookupExecutor = rateLookupExecutor;
+        this.maxConcurrentLookups = maxConcurrentLookups;
+        this.responseCache = responseCache;
+        this.observations = observations;
     }
 
     /**
-     * Creates a new purchase and saves it to the repository.
+     * Creates a new purchase and saves it to the repository, adding it to its day's total in the same transaction.
      * @param req the purchase request DTO
      * @return the ID of the saved purchase
      */
     @Transactional
     public Long createPurchase(PurchaseRequest req) {
-        log.info("Creating purchase: {}", req);
         // Round amount to 2 decimal places
         Purchase p = new Purchase(
                 req.getDescription(),
@@ -45,66 +88,197 @@ public class PurchaseService {
                 req.getAmountUsd().setScale(2, RoundingMode.HALF_UP)
         );
         p = repo.save(p);
-        log.info("Purchase saved with ID: {}", p.getId());
+        dailyTotals.add(List.of(p));
+        log.debug("Purchase saved with ID: {}", p.getId());
         return p.getId();
     }
 
     /**
      * Retrieves a purchase by ID and converts its amount to the requested currency.
+     * Conversions to known currencies are served from the {@link ConvertedPurchaseCache} when possible.
      * @param id the purchase ID
      * @param currencyCode the target currency code
      * @return the purchase response with converted amount
      */
-    @Transactional(readOnly = true)
     public PurchaseResponse getPurchaseConverted(Long id, String currencyCode) {
-        log.info("Fetching purchase with ID: {} for currency: {}", id, currencyCode);
-        Purchase p = repo.findById(id)
-                .orElseThrow(() -> {
-                    log.warn("Purchase not found: {}", id);
-                    return new NoSuchElementException("Purchase not found: " + id);
-                });
-
         // If currency is USD, return without conversion
         if (currencyCode == null || currencyCode.equalsIgnoreCase("USD")) {
-            log.info("Currency is USD or null, returning purchase without conversion.");
-            PurchaseResponse resp = new PurchaseResponse();
-            resp.setId(p.getId());
-            resp.setDescription(p.getDescription());
-            resp.setTransactionDate(p.getTransactionDate());
-            resp.setAmountUsd(p.getAmountUsd());
-            resp.setTargetCurrency("USD");
-            resp.setExchangeRate(BigDecimal.ONE);
-            resp.setConvertedAmount(p.getAmountUsd());
-            return resp;
+            return getPurchaseConverted(id, TreasuryCurrency.UNITED_STATES_DOLLAR);
         }
 
-        // Normalize currency code and map to treasury value if available
-        String code = currencyCode.trim().toUpperCase();
-        String treasuryValue = TreasuryCurrency.descForCode(code);
-        if (treasuryValue == null) {
-            treasuryValue = code;
+        TreasuryCurrency currency = TreasuryCurrency.fromCode(currencyCode.strip());
+        if (currency != null) {
+            return getPurchaseConverted(id, currency);
         }
-        LocalDate txDate = p.getTransactionDate();
+        // Not a known Treasury currency: try the normalized code as the Treasury value itself
+        String code = currencyCode.trim().toUpperCase();
+        return conversion("other").observe(() -> convert(findPurchase(id), code, code));
+    }
+
+    /**
+     * Retrieves a purchase by ID and converts its amount to an already resolved currency.
+     * No transaction is opened here, so a cached conversion needs no database connection at all; on a miss
+     * the purchase is read as a {@link PurchaseView}, so no entity is loaded into a persistence context.
+     * @param id the purchase ID
+     * @param currency the target currency
+     * @return the purchase response with converted amount
+     */
+    public PurchaseResponse getPurchaseConverted(Long id, TreasuryCurrency currency) {
+        return conversion(currency.getCurrencyCode()).observe(() -> responseCache.get(id, currency, () -> {
+            PurchaseView p = findPurchase(id);
+            if (currency == TreasuryCurrency.UNITED_STATES_DOLLAR) {
+                return PurchaseConversions.toUsdResponse(p);
+            }
+            return convert(p, currency.getCurrencyCode(), currency.getDesc());
+        }));
+    }
 
-        log.info("Looking up exchange rate for {} on or before {}", treasuryValue, txDate);
+    /**
+     * Returns the conversion of a purchase if it is already cached, without touching the database or Treasury.
+     * @param id the purchase ID
+     * @param currency the target currency
+     * @return the cached purchase response, if any
+     */
+    public Optional<PurchaseResponse> findCachedConversion(Long id, TreasuryCurrency currency) {
+        return Optional.ofNullable(responseCache.getIfPresent(id, currency));
+    }
+
+    private Observation repository(String method) {
+        return Observation.createNotStarted("purchase.repository", observations)
+                .contextualName("purchase " + method)
+                .lowCardinalityKeyValue("method", method);
+    }
+
+    /**
+     * Times a single conversion, tagged by target currency. Codes that are not Treasury currencies share
+     * one tag value, so arbitrary input cannot create new series.
+     */
+    private Observation conversion(String currency) {
+        return Observation.createNotStarted("purchase.conversion", observations)
+                .lowCardinalityKeyValue("currency", currency);
+    }
+
+    private PurchaseView findPurchase(Long id) {
+        return repository("findViewById").observe(() -> repo.findViewById(id))
+                .orElseThrow(() -> new NoSuchElementException("Purchase not found: " + id));
+    }
 
+    private PurchaseResponse convert(PurchaseView p, String code, String treasuryValue) {
+        LocalDate txDate = p.transactionDate();
         return treasuryClient.findRateOnOrBeforeWithinSixMonths(txDate, treasuryValue)
-                .map(rate -> {
-                    BigDecimal converted = p.getAmountUsd().multiply(rate.getRate()).setScale(2, RoundingMode.HALF_UP);
-                    log.info("Exchange rate found: {}. Converted amount: {}", rate.getRate(), converted);
-                    PurchaseResponse r = new PurchaseResponse();
-                    r.setId(p.getId());
-                    r.setDescription(p.getDescription());
-                    r.setTransactionDate(txDate);
-                    r.setAmountUsd(p.getAmountUsd());
-                    r.setTargetCurrency(code);
-                    r.setExchangeRate(rate.getRate().setScale(6, RoundingMode.HALF_UP));
-                    r.setConvertedAmount(converted);
-                    return r;
-                })
+                .map(rate -> PurchaseConversions.toConvertedResponse(p, code, rate))
                 .orElseThrow(() -> {
-                    log.error("No exchange rate available within 6 months on-or-before {}", txDate);
-                    return new ExchangeRateNotFoundException("No exchange rate available within 6 months on-or-before " + txDate);
+                    log.debug("No {} exchange rate within 6 months on or before {}", treasuryValue, txDate);
+                    return PurchaseConversions.rateNotFound(txDate);
                 });
     }
+
+    /**
+     * Converts several purchases into several currencies at once. The purchases are loaded in one query
+     * and each distinct (currency, transaction date) rate is looked up only once; the lookups run concurrently,
+     * at most {@code purchase.rate-lookups.max-concurrency} at a time. No transaction spans the lookups, so the
+     * purchases' connection is back in the pool before they start.
+     * @param ids the purchase IDs
+     * @param currencyCodes the target currency codes
+     * @return one response per (id, currency) pair, ordered by id then currency as requested
+     */
+    public List<PurchaseResponse> convertBatch(List<Long> ids, List<String> currencyCodes) {
+        return Observation.createNotStarted("purchase.conversion.batch", observations)
+                .observe(() -> doConvertBatch(ids, currencyCodes));
+    }
+
+    private List<PurchaseResponse> doConvertBatch(List<Long> ids, List<String> currencyCodes) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        Map<Long, PurchaseView> purchases = new HashMap<>();
+        for (PurchaseView p : repository("findViewsByIdIn").observe(() -> repo.findViewsByIdIn(distinctIds))) {
+            purchases.put(p.id(), p);
+        }
+
+        // Resolve each requested code to its Treasury value once for the whole batch
+        Map<String, String> codes = new LinkedHashMap<>();
+        for (String currencyCode : currencyCodes) {
+            String code = currencyCode.trim().toUpperCase();
+            codes.computeIfAbsent(code, PurchaseConversions::treasuryValueFor);
+        }
+
+        // Start every distinct lookup, as permits allow, before waiting on any of them
+        Semaphore permits = new Semaphore(maxConcurrentLookups);
+        Map<RateKey, CompletableFuture<Optional<ExchangeRate>>> rates = new HashMap<>();
+        for (Long id : distinctIds) {
+            PurchaseView p = purchases.get(id);
+            if (p == null) {
+                throw new NoSuchElementException("Purchase not found: " + id);
+            }
+            for (Map.Entry<String, String> code : codes.entrySet()) {
+                if (!code.getKey().equals("USD")) {
+                    rates.computeIfAbsent(new RateKey(code.getValue(), p.transactionDate()),
+                            k -> lookUpRate(permits, k.date(), k.treasuryValue()));
+                }
+            }
+        }
+
+        List<PurchaseResponse> result = new ArrayList<>(distinctIds.size() * codes.size());
+        for (Long id : distinctIds) {
+            PurchaseView p = purchases.get(id);
+            for (Map.Entry<String, String> code : codes.entrySet()) {
+                if (code.getKey().equals("USD")) {
+                    result.add(PurchaseConversions.toUsdResponse(p));
+                    continue;
+                }
+                LocalDate txDate = p.transactionDate();
+                ExchangeRate rate = PurchaseConversions.await(rates.get(new RateKey(code.getValue(), txDate)))
+                        .orElseThrow(() -> PurchaseConversions.rateNotFound(txDate));
+                result.add(PurchaseConversions.toConvertedResponse(p, code.getKey(), rate));
+            }
+        }
+        log.debug("Converted {} purchases into {} currencies using {} distinct rates",
+                distinctIds.size(), codes.size(), rates.size());
+        return result;
+    }
+
+    /**
+     * Lists purchases matching the filter in (transaction date, id) order, one page at a time.
+     * With a target currency, each distinct transaction date's rate is looked up once per page and the lookups
+     * run concurrently, as many at a time as a batch conversion's; a purchase with no rate in its six-month window is listed without a converted amount.
+     * @param filter the filter
+     * @param after the cursor returned with the previous page, or null for the first page
+     * @param size the maximum number of purchases on the page
+     * @param currency the target currency
+     * @return the page, with the cursor of the next one if there are more purchases
+     */
+    public PurchasePage listPurchases(PurchaseFilter filter, PurchaseCursor after, int size, TreasuryCurrency currency) {
+        // One extra row tells whether there is a next page without a count query
+        List<PurchaseView> views = repository("findViewsPage").observe(() -> repo.findViewsPage(filter, after, size + 1));
+        boolean more = views.size() > size;
+        List<PurchaseView> page = more ? views.subList(0, size) : views;
+        String next = more ? PurchaseCursor.after(page.get(page.size() - 1)).encode() : null;
+
+        String code = currency.getCurrencyCode();
+        List<PurchaseResponse> items = new ArrayList<>(page.size());
+        if (currency == TreasuryCurrency.UNITED_STATES_DOLLAR) {
+            for (PurchaseView p : page) {
+                items.add(PurchaseConversions.toUsdResponse(p));
+            }
+            return new PurchasePage(items, next);
+        }
+
+        String treasuryValue = currency.getDesc();
+        Semaphore permits = new Semaphore(maxConcurrentLookups);
+        Map<LocalDate, CompletableFuture<Optional<ExchangeRate>>> rates = new HashMap<>();
+        for (PurchaseView p : page) {
+            rates.computeIfAbsent(p.transactionDate(), d -> lookUpRate(permits, d, treasuryValue));
+        }
+        for (PurchaseView p : page) {
+            items.add(PurchaseConversions.await(rates.get(p.transactionDate()))
+                    .map(rate -> PurchaseConversions.toConvertedResponse(p, code, rate))
+                    .orElseGet(() -> PurchaseConversions.toUnconvertedResponse(p, code)));
+        }
+        return new PurchasePage(items, next);
+    }
+
+    private CompletableFuture<Optional<ExchangeRate>> lookUpRate(Semaphore permits, LocalDate date, String treasuryValue) {
+        return PurchaseConversions.lookUpRate(treasuryClient, rateLookupExecutor, permits, date, treasuryValue);
+    }
+
+    private record RateKey(String treasuryValue, LocalDate date) {}
 }
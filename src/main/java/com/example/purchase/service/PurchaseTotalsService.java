@@ -0,0 +1,166 @@
+package com.example.purchase.service;
+
+import com.example.purchase.client.TreasuryClient;
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.DailyTotalResponse;
+import com.example.purchase.exception.InvalidDateRangeException;
+import com.example.purchase.repository.PurchaseDailyTotalRepository;
+import com.example.purchase.repository.PurchaseDailyTotalRepository.DailyTotal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Daily spend reports, read from the precomputed {@code purchase_daily_totals} rather than from purchases:
+ * a year is at most 365 rows, however many purchases were made.
+ */
+@Service
+public class PurchaseTotalsService {
+
+    private static final Logger log = LoggerFactory.getLogger(PurchaseTotalsService.class);
+
+    private final PurchaseDailyTotalRepository totals;
+    private final TreasuryClient treasuryClient;
+    private final Executor rateLookupExecutor;
+    private final int maxConcurrentLookups;
+    private final int maxDays;
+    private final Clock clock;
+    private final int reconcileDays;
+
+    /**
+     * @param rateLookupExecutor runs the per-day rate lookups; Spring's task executor uses virtual threads
+     *                           when {@code spring.threads.virtual.enabled} is set
+     * @param maxConcurrentLookups how many rate lookups one report may have in flight at once
+     * @param maxDays the longest range, in days, one report may cover
+     * @param clock clock used to decide which days the scheduled reconciliation covers
+     * @param reconcileDays how many days, up to today, the scheduled reconciliation recomputes
+     */
+    public PurchaseTotalsService(PurchaseDailyTotalRepository totals,
+                                 TreasuryClient treasuryClient,
+                                 @Qualifier("applicationTaskExecutor") Executor rateLookupExecutor,
+                                 @Value("${purchase.rate-lookups.max-concurrency:16}") int maxConcurrentLookups,
+                                 @Value("${purchase.daily-totals.max-days:366}") int maxDays,
+                                 Clock clock,
+                                 @Value("${purchase.daily-totals.reconcile.days:7}") int reconcileDays) {
+        this.totals = totals;
+        this.treasuryClient = treasuryClient;
+        this.rateLookupExecutor = rateLookupExecutor;
+        this.maxConcurrentLookups = maxConcurrentLookups;
+        this.maxDays = maxDays;
+        this.clock = clock;
+        this.reconcileDays = reconcileDays;
+    }
+
+    /**
+     * Returns the total spend of every day in {@code [from, to]} that has purchases, converted to the currency.
+     * Every purchase of a day converts with the same rate, so each day's USD total is converted once and rounded
+     * once; it can differ by a few cents from the sum of the purchases converted and rounded one by one.
+     * Days without a rate within six months are returned with an empty rate and converted amount.
+     * @param from first transaction date, inclusive
+     * @param to last transaction date, inclusive, at most {@code purchase.daily-totals.max-days} days after
+     *           {@code from}
+     * @param currency the target currency
+     * @return one row per day with purchases, oldest first
+     * @throws InvalidDateRangeException if {@code from} is after {@code to} or the range is too long
+     */
+    public List<DailyTotalResponse> dailyTotals(LocalDate from, LocalDate to, TreasuryCurrency currency) {
+        checkRange(from, to);
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new InvalidDateRangeException("from and to may be at most " + maxDays + " days apart");
+        }
+        String code = currency.getCurrencyCode();
+        List<DailyTotal> days = totals.findBetween(from, to);
+        List<DailyTotalResponse> result = new ArrayList<>(days.size());
+        if (currency == TreasuryCurrency.UNITED_STATES_DOLLAR) {
+            for (DailyTotal day : days) {
+                result.add(toResponse(day, code, BigDecimal.ONE, day.amountUsd()));
+            }
+            return result;
+        }
+
+        // Start the lookups before waiting on any of them, a bounded number at a time;
+        // days in the same quarter share one rate load
+        String treasuryValue = currency.getDesc();
+        Semaphore permits = new Semaphore(maxConcurrentLookups);
+        List<CompletableFuture<Optional<ExchangeRate>>> rates = new ArrayList<>(days.size());
+        for (DailyTotal day : days) {
+            rates.add(PurchaseConversions.lookUpRate(treasuryClient, rateLookupExecutor, permits, day.transactionDate(), treasuryValue));
+        }
+        for (int i = 0; i < days.size(); i++) {
+            DailyTotal day = days.get(i);
+            Optional<ExchangeRate> rate = PurchaseConversions.await(rates.get(i));
+            if (rate.isEmpty()) {
+                result.add(toResponse(day, code, null, null));
+                continue;
+            }
+            DailyTotalResponse r = toResponse(day, code, rate.get().getRate().setScale(6, RoundingMode.HALF_UP),
+                    day.amountUsd().multiply(rate.get().getRate()).setScale(2, RoundingMode.HALF_UP));
+            r.setRateEffectiveDate(rate.get().getRateDate());
+            r.setRateSource(PurchaseConversions.RATE_SOURCE);
+            result.add(r);
+        }
+        return result;
+    }
+
+    /**
+     * Scheduled entry point that recomputes the last {@code reconcile.days} days; failures are logged and
+     * retried on the next run.
+     */
+    @Scheduled(cron = "${purchase.daily-totals.reconcile.cron:-}")
+    public void scheduledReconcile() {
+        LocalDate today = LocalDate.now(clock);
+        try {
+            recompute(today.minusDays(reconcileDays - 1L), today);
+        } catch (RuntimeException ex) {
+            log.warn("Daily totals reconciliation failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Recomputes the daily totals of {@code [from, to]} from the purchases themselves, correcting days whose
+     * purchases were inserted without being added to their totals.
+     * @param from first transaction date, inclusive
+     * @param to last transaction date, inclusive
+     * @return the number of days with purchases
+     * @throws InvalidDateRangeException if {@code from} is after {@code to}
+     */
+    public int recompute(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        int days = totals.recompute(from, to);
+        log.info("Recomputed daily totals from {} to {}: {} days with purchases", from, to, days);
+        return days;
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new InvalidDateRangeException("from must not be after to");
+        }
+    }
+
+    private static DailyTotalResponse toResponse(DailyTotal day, String code, BigDecimal rate, BigDecimal converted) {
+        DailyTotalResponse r = new DailyTotalResponse();
+        r.setDate(day.transactionDate());
+        r.setPurchaseCount(day.purchaseCount());
+        r.setAmountUsd(day.amountUsd());
+        r.setTargetCurrency(code);
+        r.setExchangeRate(rate);
+        r.setConvertedAmount(converted);
+        return r;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.purchase.service;
+
+import com.example.purchase.client.HttpTreasuryClient;
+import com.example.purchase.client.RatesPage;
+import com.example.purchase.repository.TreasuryRateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * Copies the Treasury rates_of_exchange dataset into the local {@code exchange_rates} table.
+ * <p>
+ * Each run resumes from the latest record date already stored. That date is fetched again,
+ * so a run that failed halfway through a record date loses nothing; upserts make the overlap harmless.
+ * Only a run that finishes advances the watermark up to which lookups treat the store as complete.
+ */
+@Service
+public class RateIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(RateIngestionService.class);
+
+    private final HttpTreasuryClient treasury;
+    private final TreasuryRateRepository rates;
+    private final int pageSize;
+
+    public RateIngestionService(HttpTreasuryClient treasury,
+                                TreasuryRateRepository rates,
+                                @Value("${treasury.ingestion.page-size:10000}") int pageSize) {
+        this.treasury = treasury;
+        this.rates = rates;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Scheduled entry point; failures are logged and retried on the next run.
+     */
+    @Scheduled(cron = "${treasury.ingestion.cron:-}")
+    public void scheduledIngest() {
+        try {
+            ingest();
+        } catch (RuntimeException ex) {
+            log.warn("Treasury rate ingestion failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Fetches every record newer than the stored watermark and upserts it, one page per transaction,
+     * then marks the store complete through the latest record date.
+     * @return the number of records written
+     */
+    public int ingest() {
+        LocalDate watermark = rates.findWatermark().orElse(null);
+        log.info("Starting treasury rate ingestion from record date {}", watermark == null ? "(beginning)" : watermark);
+
+        int written = 0;
+        int pageNumber = 1;
+        int totalPages;
+        do {
+            RatesPage page = treasury.fetchRatesPage(watermark, pageNumber, pageSize);
+            totalPages = page.totalPages();
+            if (!page.records().isEmpty()) {
+                written += rates.upsertAll(page.records());
+            }
+            log.debug("Ingested treasury rates page {}/{}", pageNumber, totalPages);
+            pageNumber++;
+        } while (pageNumber <= totalPages);
+
+        rates.findWatermark().ifPresent(rates::markCompleteThrough);
+        log.info("Treasury rate ingestion finished: {} records written", written);
+        return written;
+    }
+}
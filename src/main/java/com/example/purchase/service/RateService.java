@@ -0,0 +1,61 @@
+package com.example.purchase.service;
+
+import com.example.purchase.client.TreasuryClient;
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.RateResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * Looks up the exchange rate used for purchases on a given date, with the same rules as conversions.
+ */
+@Service
+public class RateService {
+
+    private static final Logger log = LoggerFactory.getLogger(RateService.class);
+
+    private final TreasuryClient treasuryClient;
+
+    public RateService(TreasuryClient treasuryClient) {
+        this.treasuryClient = treasuryClient;
+    }
+
+    /**
+     * Finds the rate a purchase in the currency dated {@code on} converts with.
+     * @param currency the target currency
+     * @param on the purchase date
+     * @return the rate, its effective date and the last purchase date it may still convert; a fallback rate
+     *         served while Treasury is unreachable is marked stale and has no such date
+     * @throws com.example.purchase.exception.ExchangeRateNotFoundException if there is no rate within six months
+     */
+    public RateResponse getRate(TreasuryCurrency currency, LocalDate on) {
+        RateResponse r = new RateResponse();
+        r.setCurrency(currency.getCurrencyCode());
+        r.setOn(on);
+
+        if (currency == TreasuryCurrency.UNITED_STATES_DOLLAR) {
+            r.setExchangeRate(BigDecimal.ONE);
+            return r;
+        }
+
+        String treasuryValue = currency.getDesc();
+        log.debug("Looking up exchange rate for {} on or before {}", treasuryValue, on);
+        TreasuryClient.ExchangeRate rate = treasuryClient.findRateOnOrBeforeWithinSixMonths(on, treasuryValue)
+                .orElseThrow(() -> PurchaseConversions.rateNotFound(on));
+        r.setExchangeRate(rate.getRate().setScale(6, RoundingMode.HALF_UP));
+        r.setRateEffectiveDate(rate.getRateDate());
+        if (rate.isStale()) {
+            // A newer rate may have been published since, so the rate may not cover the next six months
+            r.setStale(true);
+        } else {
+            r.setValidThrough(PurchaseConversions.lastDateWithinSixMonthsOf(rate.getRateDate()));
+        }
+        r.setRateSource(PurchaseConversions.RATE_SOURCE);
+        return r;
+    }
+}
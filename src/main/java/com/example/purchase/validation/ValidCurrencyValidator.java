@@ -12,10 +12,7 @@ public class ValidCurrencyValidator implements ConstraintValidator<ValidCurrency
         if (value == null || value.isBlank()) {
             return false;
         }
-        String code = value.trim().toUpperCase();
-        if (code.length() != 3) {
-            return false;
-        }
-        return TreasuryCurrency.fromCode(code) != null;
+        // strip() returns the same instance when there is nothing to remove, and fromCode ignores case
+        return TreasuryCurrency.fromCode(value.strip()) != null;
     }
 }
@@ -0,0 +1,48 @@
+-- The schema as Hibernate created it (ddl-auto=update) before migrations were introduced. Databases that
+-- already have it are baselined at version 0 and run this as a no-op; new databases get it from scratch.
+
+CREATE SEQUENCE IF NOT EXISTS purchase_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS purchases (
+    id               bigint         NOT NULL,
+    description      varchar(50)    NOT NULL,
+    transaction_date date           NOT NULL,
+    amount_usd       numeric(19, 2) NOT NULL,
+    CONSTRAINT purchases_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_purchases_transaction_date_id ON purchases (transaction_date, id);
+
+-- Purchases from before purchase_seq were numbered by an identity column; if the sequence has never been used,
+-- start it past their ids
+SELECT setval('purchase_seq', max(id) + 50)
+FROM purchases
+HAVING max(id) IS NOT NULL AND NOT (SELECT is_called FROM purchase_seq);
+
+CREATE TABLE IF NOT EXISTS purchase_daily_totals (
+    transaction_date date           NOT NULL,
+    purchase_count   bigint         NOT NULL,
+    amount_usd       numeric(19, 2) NOT NULL,
+    CONSTRAINT purchase_daily_totals_pkey PRIMARY KEY (transaction_date)
+);
+
+-- Totals of the purchases made before the table existed; a no-op once it has rows
+INSERT INTO purchase_daily_totals (transaction_date, purchase_count, amount_usd)
+SELECT transaction_date, count(*), sum(amount_usd)
+FROM purchases
+WHERE NOT EXISTS (SELECT 1 FROM purchase_daily_totals)
+GROUP BY transaction_date
+ON CONFLICT (transaction_date) DO NOTHING;
+
+CREATE TABLE IF NOT EXISTS exchange_rates (
+    id                    bigint GENERATED BY DEFAULT AS IDENTITY,
+    country_currency_desc varchar(100)   NOT NULL,
+    currency              varchar(50),
+    effective_date        date           NOT NULL,
+    exchange_rate         numeric(19, 6) NOT NULL,
+    record_date           date           NOT NULL,
+    CONSTRAINT exchange_rates_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_exchange_rates_currency_effective_date UNIQUE (country_currency_desc, effective_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_exchange_rates_record_date ON exchange_rates (record_date);
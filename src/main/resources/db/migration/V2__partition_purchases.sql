@@ -0,0 +1,69 @@
+-- Range-partitions purchases by month of transaction_date, so date-bounded queries and exports only read the
+-- months they cover, and an old month can be detached as a whole instead of deleted row by row.
+-- Rows are copied in this transaction, which holds the old table locked until it commits.
+
+ALTER TABLE purchases RENAME TO purchases_unpartitioned;
+ALTER TABLE purchases_unpartitioned RENAME CONSTRAINT purchases_pkey TO purchases_unpartitioned_pkey;
+DROP INDEX idx_purchases_transaction_date_id;
+
+-- The key of a partitioned table must contain the partition column. In (transaction_date, id) order it also
+-- serves keyset pagination and exports, as idx_purchases_transaction_date_id did; ids stay unique through
+-- purchase_seq.
+CREATE TABLE purchases (
+    id               bigint         NOT NULL,
+    description      varchar(50)    NOT NULL,
+    transaction_date date           NOT NULL,
+    amount_usd       numeric(19, 2) NOT NULL,
+    CONSTRAINT purchases_pkey PRIMARY KEY (transaction_date, id)
+) PARTITION BY RANGE (transaction_date);
+
+-- Lookups by id alone cannot be pruned; they probe this index in every partition
+CREATE INDEX idx_purchases_id ON purchases (id);
+
+-- Rows for months that have no partition yet
+CREATE TABLE purchases_default PARTITION OF purchases DEFAULT;
+
+-- Creates the partition for the month containing the given day, if it does not exist yet, moving that
+-- month's rows out of the default partition. Returns whether it was created. Called by the partition
+-- maintenance job, so there is always a partition for the coming months; safe to call concurrently.
+CREATE FUNCTION create_purchase_partition(day date) RETURNS boolean
+LANGUAGE plpgsql AS $$
+DECLARE
+    first_day date := date_trunc('month', day);
+    next_first_day date := first_day + interval '1 month';
+    partition text := 'purchases_' || to_char(first_day, 'YYYY_MM');
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('create_purchase_partition'));
+    IF to_regclass(partition) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+
+    -- Filled and then attached, since the default partition must hold no rows of the new range when it is
+    -- attached. The check constraint lets ATTACH skip scanning the new table.
+    EXECUTE format('CREATE TABLE %I (LIKE purchases INCLUDING DEFAULTS, '
+                   'CONSTRAINT %I CHECK (transaction_date >= %L AND transaction_date < %L))',
+                   partition, partition || '_bounds', first_day, next_first_day);
+    EXECUTE format('WITH moved AS (DELETE FROM purchases_default '
+                   'WHERE transaction_date >= %L AND transaction_date < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM moved',
+                   first_day, next_first_day, partition);
+    EXECUTE format('ALTER TABLE purchases ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition, first_day, next_first_day);
+    EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', partition, partition || '_bounds');
+    RETURN true;
+END
+$$;
+
+-- A partition for every month from the oldest purchase to three months ahead
+SELECT create_purchase_partition(month::date)
+FROM generate_series(
+        date_trunc('month', least((SELECT min(transaction_date) FROM purchases_unpartitioned), current_date)),
+        date_trunc('month', greatest((SELECT max(transaction_date) FROM purchases_unpartitioned), current_date))
+            + interval '3 months',
+        interval '1 month') AS month;
+
+INSERT INTO purchases (id, description, transaction_date, amount_usd)
+SELECT id, description, transaction_date, amount_usd
+FROM purchases_unpartitioned;
+
+DROP TABLE purchases_unpartitioned;
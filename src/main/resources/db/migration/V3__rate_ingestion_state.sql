@@ -0,0 +1,15 @@
+-- Record date through which exchange_rates is complete. Ingestion commits one page at a time, so the latest
+-- record date in the table may be only partly written; this is advanced only when a run has finished.
+CREATE TABLE rate_ingestion_state (
+    id        smallint NOT NULL,
+    watermark date     NOT NULL,
+    CONSTRAINT rate_ingestion_state_pkey PRIMARY KEY (id),
+    CONSTRAINT rate_ingestion_state_single_row CHECK (id = 1)
+);
+
+-- Whether the last run before this migration finished is unknown, so only the dates before its latest
+-- record date are taken as complete
+INSERT INTO rate_ingestion_state (id, watermark)
+SELECT 1, max(record_date) - 1
+FROM exchange_rates
+HAVING max(record_date) IS NOT NULL;
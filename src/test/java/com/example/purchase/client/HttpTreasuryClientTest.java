@@ -1,35 +1,64 @@
 package com.example.purchase.client;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
 class HttpTreasuryClientTest {
 
+    private static final String API_URL = "https://api.fiscaldata.treasury.gov";
+    private static final String ONE_RATE = "{ \"data\": [ { \"exchange_rate\": \"1.2345\", \"effective_date\": \"2024-01-01\" } ] }";
+    private static final String NO_RATES = "{ \"data\": [] }";
+
     private RestTemplate restTemplate;
     private ObjectMapper objectMapper;
+    private MockRestServiceServer server;
     private HttpTreasuryClient client;
 
     @BeforeEach
     void setUp() {
-        restTemplate = mock(RestTemplate.class);
+        restTemplate = new RestTemplate();
         objectMapper = new ObjectMapper();
-        client = new HttpTreasuryClient(restTemplate, objectMapper);
+        server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        client = new HttpTreasuryClient(restTemplate, objectMapper, Runnable::run, CircuitBreaker.ofDefaults("treasury"), ObservationRegistry.NOOP);
     }
 
     @Test
     void findRateOnOrBeforeWithinSixMonths_returnsExchangeRate_whenApiReturnsValidData() {
-        String json = "{ \"data\": [ { \"exchange_rate\": \"1.2345\", \"effective_date\": \"2024-01-01\" } ] }";
-        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn(json);
+        server.expect(ExpectedCount.manyTimes(), requestTo(containsString(API_URL)))
+                .andRespond(withSuccess(ONE_RATE, MediaType.APPLICATION_JSON));
 
         Optional<TreasuryClient.ExchangeRate> result = client.findRateOnOrBeforeWithinSixMonths(
                 LocalDate.of(2024, 1, 1), "CAD");
@@ -41,8 +70,8 @@ class HttpTreasuryClientTest {
 
     @Test
     void findRateOnOrBeforeWithinSixMonths_returnsEmpty_whenApiReturnsNoData() {
-        String json = "{ \"data\": [] }";
-        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn(json);
+        server.expect(ExpectedCount.manyTimes(), requestTo(containsString(API_URL)))
+                .andRespond(withSuccess(NO_RATES, MediaType.APPLICATION_JSON));
 
         Optional<TreasuryClient.ExchangeRate> result = client.findRateOnOrBeforeWithinSixMonths(
                 LocalDate.of(2024, 1, 1), "CAD");
@@ -52,11 +81,193 @@ class HttpTreasuryClientTest {
 
     @Test
     void findRateOnOrBeforeWithinSixMonths_returnsEmpty_whenApiReturnsNull() {
-        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn(null);
+        server.expect(ExpectedCount.manyTimes(), requestTo(containsString(API_URL)))
+                .andRespond(withSuccess());
 
         Optional<TreasuryClient.ExchangeRate> result = client.findRateOnOrBeforeWithinSixMonths(
                 LocalDate.of(2024, 1, 1), "CAD");
 
         assertFalse(result.isPresent());
     }
+
+    @Test
+    void findRateOnOrBeforeWithinSixMonths_returnsTheLatestRowInRange() {
+        String json = """
+                { "data": [
+                    { "exchange_rate": "9.99", "effective_date": "2024-03-31", "record_date": "2024-03-31", "extra": { "a": [1, 2] } },
+                    { "exchange_rate": "1.30", "effective_date": "2023-12-31", "record_date": "2024-01-15" },
+                    { "exchange_rate": "1.25", "effective_date": "2023-12-31", "record_date": "2023-12-31" },
+                    { "exchange_rate": "1.20", "effective_date": "2023-09-30", "record_date": "2023-09-30" }
+                ], "meta": { "count": 4 } }
+                """;
+        server.expect(ExpectedCount.manyTimes(), requestTo(containsString(API_URL)))
+                .andRespond(withSuccess(json, MediaType.APPLICATION_JSON));
+
+        Optional<TreasuryClient.ExchangeRate> result = client.findRateOnOrBeforeWithinSixMonths(
+                LocalDate.of(2024, 1, 1), "CAD");
+
+        assertTrue(result.isPresent());
+        assertEquals(LocalDate.of(2023, 12, 31), result.get().getRateDate());
+        assertEquals(new BigDecimal("1.30"), result.get().getRate());
+    }
+
+    @Test
+    void findRatesBetween_returnsOneRatePerDate_inRange_mostRecentFirst() {
+        String json = """
+                { "data": [
+                    { "exchange_rate": "1.40", "effective_date": "2024-06-30" },
+                    { "exchange_rate": "1.30", "effective_date": "2024-03-31" },
+                    { "exchange_rate": "1.29", "effective_date": "2024-03-31" },
+                    { "exchange_rate": null, "effective_date": "2024-02-29" },
+                    { "exchange_rate": "bad", "effective_date": "2024-01-31" },
+                    { "exchange_rate": "1.25", "effective_date": "2023-12-31" },
+                    { "exchange_rate": "1.20", "effective_date": "2023-09-30" }
+                ] }
+                """;
+        server.expect(ExpectedCount.manyTimes(), requestTo(containsString(API_URL)))
+                .andRespond(withSuccess(json, MediaType.APPLICATION_JSON));
+
+        List<TreasuryClient.ExchangeRate> rates = client.findRatesBetween("CAD", LocalDate.of(2023, 10, 1), LocalDate.of(2024, 3, 31));
+
+        assertEquals(2, rates.size());
+        assertEquals(new BigDecimal("1.30"), rates.get(0).getRate());
+        assertEquals(LocalDate.of(2023, 12, 31), rates.get(1).getRateDate());
+    }
+
+    @Test
+    void findRateOnOrBeforeWithinSixMonths_remembersWhichFieldMatchesTheCurrency() {
+        server.expect(ExpectedCount.times(2), requestTo(containsString("filter=country_currency_desc:")))
+                .andRespond(withSuccess(ONE_RATE, MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(containsString("filter=currency:")))
+                .andRespond(withSuccess(NO_RATES, MediaType.APPLICATION_JSON));
+
+        assertTrue(client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2024, 1, 1), "Canada-Dollar").isPresent());
+        assertTrue(client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2024, 2, 1), "Canada-Dollar").isPresent());
+
+        server.verify();
+    }
+
+    @Test
+    void findRateOnOrBeforeWithinSixMonths_takesTheFirstUsableAnswer_andCancelsTheOther() throws Exception {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        server.expect(ExpectedCount.once(), requestTo(containsString("filter=country_currency_desc:")))
+                .andRespond(withSuccess(ONE_RATE, MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(containsString("filter=currency:")))
+                .andRespond(request -> {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException ex) {
+                        cancelled.countDown();
+                    }
+                    throw new IOException("cancelled");
+                });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            client = new HttpTreasuryClient(restTemplate, objectMapper, executor, CircuitBreaker.ofDefaults("treasury"), ObservationRegistry.NOOP);
+            Optional<TreasuryClient.ExchangeRate> result = client.findRateOnOrBeforeWithinSixMonths(
+                    LocalDate.of(2024, 1, 1), "Canada-Dollar");
+
+            assertTrue(result.isPresent());
+            assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void findRatesBetween_sendsTheFilterEncodedOnce() {
+        server.expect(ExpectedCount.once(), requestTo(allOf(
+                        containsString("page%5Bsize%5D=200"),
+                        containsString("filter=country_currency_desc:eq:Korea%20%28South%29-Won,effective_date:lte:2024-03-31,effective_date:gte:2024-01-01"))))
+                .andRespond(withSuccess(ONE_RATE, MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(containsString("filter=currency:")))
+                .andRespond(withSuccess(NO_RATES, MediaType.APPLICATION_JSON));
+
+        assertEquals(1, client.findRatesBetween("Korea (South)-Won", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)).size());
+        server.verify();
+    }
+
+    @Test
+    void findRatesBetween_propagatesFailures_whenNoFieldReturnsData() {
+        server.expect(ExpectedCount.once(), requestTo(containsString("filter=currency:")))
+                .andRespond(withServerError());
+        server.expect(ExpectedCount.once(), requestTo(containsString("filter=country_currency_desc:")))
+                .andRespond(withSuccess(NO_RATES, MediaType.APPLICATION_JSON));
+
+        assertThrows(RuntimeException.class,
+                () -> client.findRatesBetween("CAD", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)));
+    }
+
+    @Test
+    void findRatesBetween_propagatesUnreadableResponses() {
+        server.expect(ExpectedCount.manyTimes(), requestTo(containsString(API_URL)))
+                .andRespond(withSuccess("{ \"data\": [ { \"exchange_rate\": ", MediaType.APPLICATION_JSON));
+
+        assertThrows(ResourceAccessException.class,
+                () -> client.findRatesBetween("CAD", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)));
+    }
+
+    @Test
+    void findRatesBetween_failsWithoutARequest_onceTheCircuitIsOpen() {
+        CircuitBreaker breaker = CircuitBreaker.of("treasury", CircuitBreakerConfig.custom()
+                .slidingWindowSize(2)
+                .minimumNumberOfCalls(2)
+                .build());
+        client = new HttpTreasuryClient(restTemplate, objectMapper, Runnable::run, breaker, ObservationRegistry.NOOP);
+        server.expect(ExpectedCount.times(4), requestTo(containsString(API_URL)))
+                .andRespond(withServerError());
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(RuntimeException.class,
+                    () -> client.findRatesBetween("CAD", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(CallNotPermittedException.class,
+                () -> client.findRatesBetween("CAD", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)));
+
+        // Two lookups of two requests each; the third lookup never reached the server
+        server.verify();
+    }
+
+    @Test
+    void findRatesBetween_timesEachRequest_byFieldAndOutcome() {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        ObservationRegistry observations = ObservationRegistry.create();
+        observations.observationConfig().observationHandler(new DefaultMeterObservationHandler(meters));
+        client = new HttpTreasuryClient(restTemplate, objectMapper, Runnable::run, CircuitBreaker.ofDefaults("treasury"), observations);
+        server.expect(ExpectedCount.once(), requestTo(containsString("filter=currency:")))
+                .andRespond(withSuccess(NO_RATES, MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(containsString("filter=country_currency_desc:")))
+                .andRespond(withServerError());
+
+        assertThrows(RuntimeException.class,
+                () -> client.findRatesBetween("CAD", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)));
+
+        assertEquals(1, meters.get("treasury.requests").tags("field", "currency", "outcome", "empty").timer().count());
+        assertEquals(1, meters.get("treasury.requests").tags("field", "country_currency_desc", "outcome", "error").timer().count());
+    }
+
+    @Test
+    void findRatesBetween_parsesInsideTheRequestObservation() {
+        Map<String, Observation.Context> started = new ConcurrentHashMap<>();
+        ObservationRegistry observations = ObservationRegistry.create();
+        observations.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStart(Observation.Context context) {
+                started.put(context.getName(), context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        client = new HttpTreasuryClient(restTemplate, objectMapper, Runnable::run, CircuitBreaker.ofDefaults("treasury"), observations);
+        server.expect(ExpectedCount.manyTimes(), requestTo(containsString(API_URL)))
+                .andRespond(withSuccess(ONE_RATE, MediaType.APPLICATION_JSON));
+
+        client.findRatesBetween("CAD", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31));
+
+        Observation.Context request = started.get("treasury.requests");
+        assertEquals("CAD", request.getHighCardinalityKeyValue("currency").getValue());
+        assertSame(request, started.get("treasury.parse").getParentObservation().getContextView());
+    }
 }
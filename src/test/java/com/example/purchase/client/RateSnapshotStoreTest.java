@@ -0,0 +1,70 @@
+package com.example.purchase.client;
+
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateSnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void save_thenLoad_restoresRatesAndCoverage() {
+        RateTable table = new RateTable();
+        table.put("Canada-Dollar", new ExchangeRate(LocalDate.of(2024, 12, 31), new BigDecimal("1.437")));
+        table.put("Canada-Dollar", new ExchangeRate(LocalDate.of(2024, 9, 30), new BigDecimal("1.350")));
+        table.cover("Canada-Dollar", LocalDate.of(2024, 7, 1), LocalDate.of(2025, 3, 31));
+        table.cover("Mexico-Peso", LocalDate.of(2024, 7, 1), LocalDate.of(2025, 3, 31));
+        Path file = dir.resolve("snapshots/rates.snapshot");
+        new RateSnapshotStore(table, file.toString()).save();
+
+        RateTable restored = new RateTable();
+        new RateSnapshotStore(restored, file.toString()).load();
+
+        RateTable.Lookup hit = restored.find("Canada-Dollar", LocalDate.of(2025, 2, 15));
+        assertTrue(hit.isHit());
+        assertEquals(LocalDate.of(2024, 12, 31), hit.getRate().get().getRateDate());
+        assertEquals(new BigDecimal("1.437"), hit.getRate().get().getRate());
+        assertEquals(new BigDecimal("1.350"), restored.find("Canada-Dollar", LocalDate.of(2024, 12, 1)).getRate().get().getRate());
+        // A covered range without rates is still a (negative) hit
+        assertTrue(restored.find("Mexico-Peso", LocalDate.of(2025, 3, 1)).isHit());
+        assertEquals(Optional.empty(), restored.find("Mexico-Peso", LocalDate.of(2025, 3, 1)).getRate());
+        assertFalse(restored.find("Canada-Dollar", LocalDate.of(2025, 4, 1)).isHit());
+    }
+
+    @Test
+    void load_ignoresTruncatedFiles_andLeavesTheTableEmpty() throws IOException {
+        RateTable table = new RateTable();
+        table.put("Canada-Dollar", new ExchangeRate(LocalDate.of(2024, 12, 31), new BigDecimal("1.437")));
+        table.cover("Canada-Dollar", LocalDate.of(2024, 7, 1), LocalDate.of(2025, 3, 31));
+        Path file = dir.resolve("rates.snapshot");
+        new RateSnapshotStore(table, file.toString()).save();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        RateTable restored = new RateTable();
+        new RateSnapshotStore(restored, file.toString()).load();
+
+        assertTrue(restored.snapshot().isEmpty());
+    }
+
+    @Test
+    void load_withoutFile_doesNothing() {
+        RateTable table = new RateTable();
+        new RateSnapshotStore(table, dir.resolve("missing").toString()).load();
+        new RateSnapshotStore(table, "").load();
+
+        assertTrue(table.snapshot().isEmpty());
+    }
+}
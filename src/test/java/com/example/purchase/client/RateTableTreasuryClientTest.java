@@ -0,0 +1,233 @@
+package com.example.purchase.client;
+
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import com.example.purchase.repository.TreasuryRateRepository;
+import com.example.purchase.repository.TreasuryRateRepository.StoredWindow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RateTableTreasuryClientTest {
+
+    private static final Clock CLOCK = Clock.fixed(
+            LocalDate.of(2025, 6, 1).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    private static final ExchangeRate DEC = new ExchangeRate(LocalDate.of(2024, 12, 31), new BigDecimal("1.437"));
+    private static final ExchangeRate SEP = new ExchangeRate(LocalDate.of(2024, 9, 30), new BigDecimal("1.35"));
+
+    private HttpTreasuryClient upstream;
+    private TreasuryRateRepository store;
+    private List<Runnable> refreshes;
+    private RateTableTreasuryClient client;
+
+    @BeforeEach
+    void setUp() {
+        upstream = mock(HttpTreasuryClient.class);
+        store = mock(TreasuryRateRepository.class);
+        refreshes = new ArrayList<>();
+        client = new RateTableTreasuryClient(upstream, store, new RateTable(), CLOCK, 30, refreshes::add, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void findRate_loadsTheQuarterWindowOnce_andAnswersTheWholeQuarterFromMemory() {
+        when(upstream.findRatesBetween("Canada-Dollar", LocalDate.of(2024, 7, 1), LocalDate.of(2025, 3, 31)))
+                .thenReturn(List.of(DEC, SEP));
+
+        assertEquals(Optional.of(DEC), client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 2, 15), "Canada-Dollar"));
+        assertEquals(Optional.of(DEC), client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 1, 10), "Canada-Dollar"));
+        assertEquals(Optional.of(DEC), client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 3, 31), "Canada-Dollar"));
+        assertEquals(Optional.of(SEP), client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2024, 12, 30), "Canada-Dollar"));
+
+        verify(upstream, times(1)).findRatesBetween(any(), any(), any());
+    }
+
+    @Test
+    void findRate_loadsAnotherWindow_whenTheCoveredRangeCannotAnswer() {
+        when(upstream.findRatesBetween(eq("Canada-Dollar"), any(), any())).thenReturn(List.of(DEC, SEP));
+
+        client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 2, 15), "Canada-Dollar");
+        // Covered from 2024-07-01, but a rate before that could still be the answer
+        client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2024, 8, 15), "Canada-Dollar");
+        client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 2, 15), "Mexico-Peso");
+
+        verify(upstream).findRatesBetween("Canada-Dollar", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 9, 30));
+        verify(upstream, times(3)).findRatesBetween(any(), any(), any());
+    }
+
+    @Test
+    void findRate_cachesEmptyWindows() {
+        when(upstream.findRatesBetween(any(), any(), any())).thenReturn(List.of());
+
+        assertFalse(client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 1, 10), "Canada-Dollar").isPresent());
+        assertFalse(client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 2, 10), "Canada-Dollar").isPresent());
+
+        verify(upstream, times(1)).findRatesBetween(any(), any(), any());
+    }
+
+    @Test
+    void findRate_doesNotCacheUpstreamFailures() {
+        when(upstream.findRatesBetween(any(), any(), any())).thenThrow(new ResourceAccessException("timeout"));
+
+        assertFalse(client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 1, 10), "Canada-Dollar").isPresent());
+        assertFalse(client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 1, 10), "Canada-Dollar").isPresent());
+
+        verify(upstream, times(2)).findRatesBetween(any(), any(), any());
+    }
+
+    @Test
+    void findRate_answersFromKnownRates_whenUpstreamFails_andRefreshesInTheBackground() {
+        ExchangeRate mar = new ExchangeRate(LocalDate.of(2025, 3, 31), new BigDecimal("1.43"));
+        when(upstream.findRatesBetween("Canada-Dollar", LocalDate.of(2024, 7, 1), LocalDate.of(2025, 3, 31)))
+                .thenReturn(List.of(DEC, SEP));
+        when(upstream.findRatesBetween("Canada-Dollar", LocalDate.of(2024, 10, 1), LocalDate.of(2025, 6, 1)))
+                .thenThrow(new ResourceAccessException("timeout"))
+                .thenReturn(List.of(mar, DEC));
+
+        client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 2, 15), "Canada-Dollar");
+        assertStale(DEC, client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 4, 15), "Canada-Dollar"));
+        assertEquals(1, refreshes.size());
+
+        refreshes.getFirst().run();
+        assertEquals(Optional.of(mar), client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 4, 15), "Canada-Dollar"));
+        verify(upstream, times(2)).findRatesBetween("Canada-Dollar", LocalDate.of(2024, 10, 1), LocalDate.of(2025, 6, 1));
+    }
+
+    @Test
+    void findRate_schedulesOneRefreshPerWindow_whileUpstreamIsDown() {
+        when(store.findBetween(any(), any(), any()))
+                .thenReturn(Optional.of(new StoredWindow(LocalDate.of(2025, 1, 31), List.of(DEC))));
+        when(upstream.findRatesBetween(any(), any(), any())).thenThrow(new ResourceAccessException("timeout"));
+
+        // The store is behind the window, but its rates are still the best known answer
+        assertStale(DEC, client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 2, 15), "Canada-Dollar"));
+        assertStale(DEC, client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 3, 15), "Canada-Dollar"));
+        assertEquals(1, refreshes.size());
+
+        refreshes.getFirst().run();
+        assertStale(DEC, client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 3, 15), "Canada-Dollar"));
+        assertEquals(2, refreshes.size());
+    }
+
+    @Test
+    void bindTo_countsLookupsByResult() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        client.bindTo(registry);
+        when(upstream.findRatesBetween(eq("Canada-Dollar"), any(), any())).thenReturn(List.of(DEC, SEP));
+        when(upstream.findRatesBetween(eq("Mexico-Peso"), any(), any())).thenThrow(new ResourceAccessException("timeout"));
+
+        client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 2, 15), "Canada-Dollar");
+        client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 1, 10), "Canada-Dollar");
+        client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 1, 10), "Mexico-Peso");
+
+        assertEquals(1.0, registry.get("treasury.rate.lookups").tag("result", "loaded").functionCounter().count());
+        assertEquals(1.0, registry.get("treasury.rate.lookups").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("treasury.rate.lookups").tag("result", "failed").functionCounter().count());
+        assertEquals(0.0, registry.get("treasury.rate.lookups").tag("result", "stale").functionCounter().count());
+    }
+
+    @Test
+    void findRate_doesNotTreatUnsettledDatesAsComplete() {
+        client = new RateTableTreasuryClient(upstream, store, new RateTable(), CLOCK, 30, refreshes::add, Duration.ZERO);
+        ExchangeRate mar = new ExchangeRate(LocalDate.of(2025, 3, 31), new BigDecimal("1.43"));
+        when(upstream.findRatesBetween(eq("Canada-Dollar"), any(), any())).thenReturn(List.of(mar, DEC));
+
+        client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 5, 25), "Canada-Dollar");
+        client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 5, 25), "Canada-Dollar");
+        client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 4, 15), "Canada-Dollar");
+
+        // The current quarter is fetched up to today; 2025-05-25 is inside the settle window, 2025-04-15 is not
+        verify(upstream, times(2)).findRatesBetween("Canada-Dollar", LocalDate.of(2024, 10, 1), LocalDate.of(2025, 6, 1));
+        verifyNoMoreInteractions(upstream);
+    }
+
+    @Test
+    void findRate_recentDate_isLoadedOnce_whileTheUnsettledWindowIsFresh() {
+        ExchangeRate mar = new ExchangeRate(LocalDate.of(2025, 3, 31), new BigDecimal("1.43"));
+        when(upstream.findRatesBetween(eq("Canada-Dollar"), any(), any())).thenReturn(List.of(mar, DEC));
+
+        assertEquals(Optional.of(mar), client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 5, 25), "Canada-Dollar"));
+        assertEquals(Optional.of(mar), client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 5, 25), "Canada-Dollar"));
+
+        verify(upstream, times(1)).findRatesBetween("Canada-Dollar", LocalDate.of(2024, 10, 1), LocalDate.of(2025, 6, 1));
+        verifyNoMoreInteractions(upstream);
+    }
+
+    @Test
+    void findRate_usesTheStore_whenItIsCompleteForTheWindow() {
+        when(store.findBetween("Canada-Dollar", LocalDate.of(2024, 7, 1), LocalDate.of(2025, 3, 31)))
+                .thenReturn(Optional.of(new StoredWindow(LocalDate.of(2025, 3, 31), List.of(DEC, SEP))));
+
+        assertEquals(Optional.of(DEC), client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 2, 15), "Canada-Dollar"));
+        assertEquals(Optional.of(DEC), client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 1, 15), "Canada-Dollar"));
+
+        verify(store, times(1)).findBetween(any(), any(), any());
+        verifyNoInteractions(upstream);
+    }
+
+    @Test
+    void findRate_goesUpstream_whenTheStoreIsBehindTheWindow() {
+        ExchangeRate mar = new ExchangeRate(LocalDate.of(2025, 3, 31), new BigDecimal("1.43"));
+        when(store.findBetween(any(), any(), any()))
+                .thenReturn(Optional.of(new StoredWindow(LocalDate.of(2024, 12, 31), List.of(DEC))));
+        when(upstream.findRatesBetween(any(), any(), any())).thenReturn(List.of(mar, DEC));
+
+        assertEquals(Optional.of(mar), client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 3, 31), "Canada-Dollar"));
+    }
+
+    @Test
+    void findRate_concurrentMissesInTheSameWindow_shareOneLoad() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(upstream.findRatesBetween(any(), any(), any())).thenAnswer(inv -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(DEC, SEP);
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            Future<Optional<ExchangeRate>> first = pool.submit(
+                    () -> client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 2, 15), "Canada-Dollar"));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Future<Optional<ExchangeRate>> sameQuarter = pool.submit(
+                    () -> client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 1, 2), "Canada-Dollar"));
+            Future<Optional<ExchangeRate>> sameDate = pool.submit(
+                    () -> client.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2025, 2, 15), "Canada-Dollar"));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(Optional.of(DEC), first.get(5, TimeUnit.SECONDS));
+            assertEquals(Optional.of(DEC), sameQuarter.get(5, TimeUnit.SECONDS));
+            assertEquals(Optional.of(DEC), sameDate.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(upstream, times(1)).findRatesBetween(any(), any(), any());
+    }
+
+    private static void assertStale(ExchangeRate expected, Optional<ExchangeRate> actual) {
+        assertTrue(actual.isPresent());
+        assertEquals(expected.getRateDate(), actual.get().getRateDate());
+        assertEquals(expected.getRate(), actual.get().getRate());
+        assertTrue(actual.get().isStale());
+    }
+}
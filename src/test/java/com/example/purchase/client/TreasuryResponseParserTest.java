@@ -0,0 +1,57 @@
+package com.example.purchase.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TreasuryResponseParserTest {
+
+    private final TreasuryResponseParser parser = new TreasuryResponseParser(new ObjectMapper().getFactory());
+
+    @Test
+    void readRates_skipsAMalformedDate_andReadsTheRowsAfterIt() throws IOException {
+        String json = """
+                { "data": [
+                    { "exchange_rate": "1.40", "effective_date": "2025-03-31" },
+                    { "exchange_rate": "9.99", "effective_date": "2024-1-5" },
+                    { "exchange_rate": "1.30", "effective_date": "2024-12-31" }
+                ] }
+                """;
+
+        // as text, "2024-1-5" sorts below "2024-10-01"
+        List<TreasuryClient.ExchangeRate> rates = parser.readRates(body(json), LocalDate.of(2024, 10, 1), LocalDate.of(2025, 3, 31), 10);
+
+        assertEquals(2, rates.size());
+        assertEquals(LocalDate.of(2025, 3, 31), rates.get(0).getRateDate());
+        assertEquals(new BigDecimal("1.30"), rates.get(1).getRate());
+    }
+
+    @Test
+    void readRates_stopsAtTheFirstWellFormedDateBeforeTheRange() throws IOException {
+        String json = """
+                { "data": [
+                    { "exchange_rate": "1.40", "effective_date": "2024-03-31" },
+                    { "exchange_rate": "1.20", "effective_date": "2023-09-30" },
+                    { "exchange_rate": "1.30", "effective_date": "2023-12-31" }
+                ] }
+                """;
+
+        List<TreasuryClient.ExchangeRate> rates = parser.readRates(body(json), LocalDate.of(2023, 10, 1), LocalDate.of(2024, 3, 31), 10);
+
+        assertEquals(1, rates.size());
+        assertEquals(LocalDate.of(2024, 3, 31), rates.get(0).getRateDate());
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
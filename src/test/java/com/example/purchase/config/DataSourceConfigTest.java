@@ -0,0 +1,88 @@
+package com.example.purchase.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DataSourceConfigTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private Connection primaryConnection;
+    private Connection replicaConnection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        primary = mock(DataSource.class);
+        replica = mock(DataSource.class);
+        primaryConnection = connection();
+        replicaConnection = connection();
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+    }
+
+    @Test
+    void readOnlyTransactionsRunOnReplica_andOthersOnPrimary() throws Exception {
+        DataSource dataSource = dataSource(replica);
+
+        run(dataSource, true);
+        verify(replicaConnection.createStatement()).execute("SELECT 1");
+
+        run(dataSource, false);
+        verify(primaryConnection.createStatement()).execute("UPDATE 1");
+        verify(replicaConnection.createStatement(), never()).execute("UPDATE 1");
+    }
+
+    @Test
+    void withoutReplica_readOnlyTransactionsRunOnPrimary() throws Exception {
+        run(dataSource(null), true);
+
+        verify(primaryConnection.createStatement()).execute("SELECT 1");
+        verify(replica, never()).getConnection();
+    }
+
+    @Test
+    void transactionWithoutStatements_takesNoConnection() throws Exception {
+        DataSource dataSource = dataSource(replica);
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> { });
+
+        verify(primaryConnection, never()).createStatement();
+        verify(replica, never()).getConnection();
+    }
+
+    private DataSource dataSource(DataSource replica) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (replica != null) {
+            beans.addBean("replicaDataSource", replica);
+        }
+        return new DataSourceConfig().dataSource(primary, beans.getBeanProvider(DataSource.class));
+    }
+
+    private static void run(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        tx.setReadOnly(readOnly);
+        tx.executeWithoutResult(status -> new JdbcTemplate(dataSource).execute(readOnly ? "SELECT 1" : "UPDATE 1"));
+    }
+
+    private static Connection connection() throws Exception {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(statement.execute(anyString())).thenReturn(false);
+        return connection;
+    }
+}
@@ -1,21 +1,37 @@
 // src/test/java/com/example/purchase/controller/PurchaseControllerTest.java
 package com.example.purchase.controller;
 
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.BulkPurchaseResponse;
+import com.example.purchase.dto.BulkPurchaseResult;
+import com.example.purchase.dto.PurchasePage;
 import com.example.purchase.dto.PurchaseRequest;
 import com.example.purchase.dto.PurchaseResponse;
+import com.example.purchase.repository.PurchaseCursor;
+import com.example.purchase.repository.PurchaseFilter;
+import com.example.purchase.exception.RestExceptionHandler;
+import com.example.purchase.service.PurchaseBulkService;
+import com.example.purchase.service.PurchaseExportService;
 import com.example.purchase.service.PurchaseService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.format.support.FormattingConversionService;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
 
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.isEmptyString;
@@ -27,19 +43,31 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 class PurchaseControllerTest {
 
+    private static final Clock CLOCK = Clock.fixed(
+            LocalDate.of(2026, 3, 1).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
     private MockMvc mockMvc;
     private PurchaseService service;
+    private PurchaseExportService exportService;
+    private PurchaseBulkService bulkService;
     private ObjectMapper objectMapper;
+    private PurchaseController controller;
+    private FormattingConversionService conversionService;
 
     @SuppressWarnings("deprecation")
     @BeforeEach
     void setUp() {
         service = Mockito.mock(PurchaseService.class);
-        PurchaseController controller = new PurchaseController(service);
+        exportService = Mockito.mock(PurchaseExportService.class);
+        bulkService = Mockito.mock(PurchaseBulkService.class);
+        controller = new PurchaseController(service, exportService, bulkService, CLOCK, 30, Duration.ofDays(1));
         objectMapper = new ObjectMapper();
         objectMapper.findAndRegisterModules();
 
+        conversionService = new DefaultFormattingConversionService();
+        conversionService.addConverter(new TreasuryCurrencyConverter());
         mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setConversionService(conversionService)
                 .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
                 .build();
     }
@@ -62,10 +90,37 @@ class PurchaseControllerTest {
         verify(service).createPurchase(ArgumentMatchers.any(PurchaseRequest.class));
     }
 
+    @Test
+    void createPurchases_ndjson_isReadLineByLine() throws Exception {
+        when(bulkService.createPurchases(ArgumentMatchers.any(), ArgumentMatchers.eq(true)))
+                .thenReturn(new BulkPurchaseResponse(List.of(BulkPurchaseResult.created(0, 51L))));
+
+        mockMvc.perform(post("/purchases/bulk")
+                        .contentType("application/x-ndjson")
+                        .content("{}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.error").doesNotExist());
+    }
+
+    @Test
+    void createPurchases_inputThatBreaksOff_isBadRequest_withTheRowsSavedBefore() throws Exception {
+        when(bulkService.createPurchases(ArgumentMatchers.any(), ArgumentMatchers.eq(false)))
+                .thenReturn(new BulkPurchaseResponse(List.of(BulkPurchaseResult.created(0, 51L)),
+                        "Malformed JSON at line 1, column 80; elements from index 1 on were not read"));
+
+        mockMvc.perform(post("/purchases/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{}, {"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.results[0].id").value(51))
+                .andExpect(jsonPath("$.error").value("Malformed JSON at line 1, column 80; elements from index 1 on were not read"));
+    }
+
     @Test
     void getPurchase_returnsPurchaseResponse_and_callsService() throws Exception {
         Long id = 1L;
-        String currency = "USD";
+        TreasuryCurrency currency = TreasuryCurrency.UNITED_STATES_DOLLAR;
         PurchaseResponse resp = new PurchaseResponse();
         resp.setId(id);
         resp.setDescription("Test purchase");
@@ -74,11 +129,208 @@ class PurchaseControllerTest {
 
         when(service.getPurchaseConverted(ArgumentMatchers.eq(id), ArgumentMatchers.eq(currency))).thenReturn(resp);
 
-        mockMvc.perform(get("/purchases/{id}", id).param("currency", currency))
+        mockMvc.perform(get("/purchases/{id}", id).param("currency", " usd"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(content().string(not(isEmptyString())));
 
         verify(service).getPurchaseConverted(ArgumentMatchers.eq(id), ArgumentMatchers.eq(currency));
     }
+
+    @Test
+    void getPurchase_unknownCurrency_isBadRequest() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new RestExceptionHandler())
+                .setConversionService(conversionService)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+
+        mockMvc.perform(get("/purchases/{id}", 1L).param("currency", "XYZ"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value(RestExceptionHandler.CURRENCY_MSG));
+
+        Mockito.verifyNoInteractions(service);
+    }
+
+    @Test
+    void getPurchase_settledConversion_isCacheable_andRevalidatesWith304() throws Exception {
+        PurchaseResponse resp = new PurchaseResponse();
+        resp.setId(7L);
+        resp.setTransactionDate(LocalDate.of(2025, 11, 20));
+        resp.setTargetCurrency("CAD");
+        resp.setRateEffectiveDate(LocalDate.of(2025, 9, 30));
+        resp.setExchangeRate(new BigDecimal("1.385000"));
+        when(service.getPurchaseConverted(7L, TreasuryCurrency.CANADA_DOLLAR)).thenReturn(resp);
+
+        mockMvc.perform(get("/purchases/{id}", 7L).param("currency", "CAD"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7-CAD-2025-09-30-1.385000\""))
+                .andExpect(header().string("Cache-Control", "max-age=86400, public"))
+                .andExpect(jsonPath("$.rateEffectiveDate").value("2025-09-30"));
+
+        mockMvc.perform(get("/purchases/{id}", 7L).param("currency", "CAD")
+                        .header("If-None-Match", "\"7-CAD-2025-09-30-1.385000\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getPurchase_revalidatedAgainstTheCachedConversion_skipsTheConversion() throws Exception {
+        PurchaseResponse resp = new PurchaseResponse();
+        resp.setId(7L);
+        resp.setTransactionDate(LocalDate.of(2025, 11, 20));
+        resp.setTargetCurrency("CAD");
+        resp.setRateEffectiveDate(LocalDate.of(2025, 9, 30));
+        resp.setExchangeRate(new BigDecimal("1.385000"));
+        when(service.findCachedConversion(7L, TreasuryCurrency.CANADA_DOLLAR)).thenReturn(Optional.of(resp));
+
+        mockMvc.perform(get("/purchases/{id}", 7L).param("currency", "CAD")
+                        .header("If-None-Match", "\"7-CAD-2025-09-30-1.385000\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues("ETag", "\"7-CAD-2025-09-30-1.385000\""))
+                .andExpect(header().string("Cache-Control", "max-age=86400, public"))
+                .andExpect(content().string(""));
+
+        verify(service, Mockito.never()).getPurchaseConverted(7L, TreasuryCurrency.CANADA_DOLLAR);
+    }
+
+    @Test
+    void getPurchase_republishedRateForTheSameDate_changesTheETag() throws Exception {
+        PurchaseResponse resp = new PurchaseResponse();
+        resp.setId(7L);
+        resp.setTransactionDate(LocalDate.of(2025, 11, 20));
+        resp.setTargetCurrency("CAD");
+        resp.setRateEffectiveDate(LocalDate.of(2025, 9, 30));
+        resp.setExchangeRate(new BigDecimal("1.386000"));
+        when(service.getPurchaseConverted(7L, TreasuryCurrency.CANADA_DOLLAR)).thenReturn(resp);
+
+        mockMvc.perform(get("/purchases/{id}", 7L).param("currency", "CAD")
+                        .header("If-None-Match", "\"7-CAD-2025-09-30-1.385000\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7-CAD-2025-09-30-1.386000\""));
+    }
+
+    @Test
+    void getPurchase_recentConversion_mustBeRevalidated() throws Exception {
+        PurchaseResponse resp = new PurchaseResponse();
+        resp.setId(8L);
+        resp.setTransactionDate(LocalDate.of(2026, 2, 20));
+        resp.setTargetCurrency("CAD");
+        resp.setRateEffectiveDate(LocalDate.of(2025, 12, 31));
+        when(service.getPurchaseConverted(8L, TreasuryCurrency.CANADA_DOLLAR)).thenReturn(resp);
+
+        mockMvc.perform(get("/purchases/{id}", 8L).param("currency", "CAD")
+                        .header("If-None-Match", "\"8-CAD-2025-09-30\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"8-CAD-2025-12-31\""))
+                .andExpect(header().string("Cache-Control", "no-cache"));
+    }
+
+    @Test
+    void getPurchase_staleConversion_hasNoETag_andMustBeRevalidated() throws Exception {
+        PurchaseResponse resp = new PurchaseResponse();
+        resp.setId(9L);
+        resp.setTransactionDate(LocalDate.of(2025, 11, 20));
+        resp.setTargetCurrency("CAD");
+        resp.setRateEffectiveDate(LocalDate.of(2025, 9, 30));
+        resp.setExchangeRate(new BigDecimal("1.385000"));
+        resp.setStale(true);
+        when(service.getPurchaseConverted(9L, TreasuryCurrency.CANADA_DOLLAR)).thenReturn(resp);
+
+        mockMvc.perform(get("/purchases/{id}", 9L).param("currency", "CAD"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(jsonPath("$.stale").doesNotExist());
+    }
+
+    @Test
+    void convertPurchases_returnsAllRows_and_callsServiceOnce() throws Exception {
+        PurchaseResponse resp = new PurchaseResponse();
+        resp.setId(1L);
+        resp.setTargetCurrency("EUR");
+
+        when(service.convertBatch(List.of(1L, 2L), List.of("EUR", "CAD"))).thenReturn(List.of(resp, resp));
+
+        mockMvc.perform(post("/purchases/convert")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[1,2],\"currencies\":[\"EUR\",\"CAD\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        verify(service).convertBatch(List.of(1L, 2L), List.of("EUR", "CAD"));
+    }
+
+    @Test
+    void listPurchases_passesFilterAndCursor_andReturnsNextCursor() throws Exception {
+        PurchaseResponse resp = new PurchaseResponse();
+        resp.setId(7L);
+        resp.setTargetCurrency("CAD");
+        PurchaseCursor after = new PurchaseCursor(LocalDate.of(2024, 1, 2), 6L);
+        PurchaseFilter filter = new PurchaseFilter(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31),
+                new BigDecimal("10"), null);
+        when(service.listPurchases(filter, after, 20, TreasuryCurrency.CANADA_DOLLAR)).thenReturn(new PurchasePage(List.of(resp), "next-token"));
+
+        mockMvc.perform(get("/purchases")
+                        .param("from", "2024-01-01")
+                        .param("to", "2024-12-31")
+                        .param("minAmount", "10")
+                        .param("currency", "CAD")
+                        .param("after", after.encode())
+                        .param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(7))
+                .andExpect(jsonPath("$.next").value("next-token"));
+    }
+
+    @Test
+    void listPurchases_defaults_toFirstPageInUsd() throws Exception {
+        when(service.listPurchases(new PurchaseFilter(null, null, null, null), null, 50, TreasuryCurrency.UNITED_STATES_DOLLAR))
+                .thenReturn(new PurchasePage(List.of(), null));
+
+        mockMvc.perform(get("/purchases"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(0));
+    }
+
+    @Test
+    void listPurchases_unknownCurrency_isBadRequest() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new RestExceptionHandler())
+                .setConversionService(conversionService)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+
+        mockMvc.perform(get("/purchases").param("currency", "XYZ"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value(RestExceptionHandler.CURRENCY_MSG));
+
+        Mockito.verifyNoInteractions(service);
+    }
+
+    @Test
+    void exportPurchases_unknownCurrency_isBadRequest() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new RestExceptionHandler())
+                .setConversionService(conversionService)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+
+        mockMvc.perform(get("/purchases/export").param("currency", "XYZ")
+                        .param("from", "2024-01-01").param("to", "2024-12-31"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value(RestExceptionHandler.CURRENCY_MSG));
+        mockMvc.perform(get("/purchases/export").param("currency", "")
+                        .param("from", "2024-01-01").param("to", "2024-12-31"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value(RestExceptionHandler.CURRENCY_MSG));
+
+        Mockito.verifyNoInteractions(exportService);
+    }
+
+    @Test
+    void listPurchases_invalidCursor_isBadRequest() throws Exception {
+        mockMvc.perform(get("/purchases").param("after", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
 }
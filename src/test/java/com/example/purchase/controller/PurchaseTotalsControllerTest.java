@@ -0,0 +1,95 @@
+package com.example.purchase.controller;
+
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.DailyTotalResponse;
+import com.example.purchase.exception.InvalidDateRangeException;
+import com.example.purchase.exception.RestExceptionHandler;
+import com.example.purchase.service.PurchaseTotalsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class PurchaseTotalsControllerTest {
+
+    private MockMvc mockMvc;
+    private PurchaseTotalsService service;
+
+    @SuppressWarnings("deprecation")
+    @BeforeEach
+    void setUp() {
+        service = Mockito.mock(PurchaseTotalsService.class);
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.findAndRegisterModules();
+
+        DefaultFormattingConversionService conversionService = new DefaultFormattingConversionService();
+        conversionService.addConverter(new TreasuryCurrencyConverter());
+        mockMvc = MockMvcBuilders.standaloneSetup(new PurchaseTotalsController(service))
+                .setControllerAdvice(new RestExceptionHandler())
+                .setConversionService(conversionService)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
+    @Test
+    void getDailyTotals_returnsOneRowPerDay() throws Exception {
+        DailyTotalResponse r = new DailyTotalResponse();
+        r.setDate(LocalDate.of(2024, 1, 2));
+        r.setPurchaseCount(3);
+        r.setAmountUsd(new BigDecimal("10.01"));
+        r.setTargetCurrency("USD");
+        r.setExchangeRate(BigDecimal.ONE);
+        r.setConvertedAmount(new BigDecimal("10.01"));
+        when(service.dailyTotals(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), TreasuryCurrency.UNITED_STATES_DOLLAR)).thenReturn(List.of(r));
+
+        mockMvc.perform(get("/purchases/daily-totals").param("from", "2024-01-01").param("to", "2024-01-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].date").value("2024-01-02"))
+                .andExpect(jsonPath("$[0].purchaseCount").value(3))
+                .andExpect(jsonPath("$[0].convertedAmount").value(10.01))
+                .andExpect(jsonPath("$[0].rateSource").doesNotExist());
+    }
+
+    @Test
+    void getDailyTotals_invalidRange_isBadRequest() throws Exception {
+        when(service.dailyTotals(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1), TreasuryCurrency.UNITED_STATES_DOLLAR))
+                .thenThrow(new InvalidDateRangeException("from must not be after to"));
+
+        mockMvc.perform(get("/purchases/daily-totals").param("from", "2024-02-01").param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value("from must not be after to"));
+    }
+
+    @Test
+    void getDailyTotals_unknownCurrency_isBadRequest() throws Exception {
+        mockMvc.perform(get("/purchases/daily-totals")
+                        .param("from", "2024-01-01").param("to", "2024-01-31").param("currency", "XYZ"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value(RestExceptionHandler.CURRENCY_MSG));
+
+        verify(service, never()).dailyTotals(any(), any(), any());
+    }
+
+    @Test
+    void getDailyTotals_withoutRange_isBadRequest() throws Exception {
+        mockMvc.perform(get("/purchases/daily-totals").param("from", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+
+        verify(service, never()).dailyTotals(any(), any(), any());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.purchase.controller;
+
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.RateResponse;
+import com.example.purchase.exception.RestExceptionHandler;
+import com.example.purchase.service.RateService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class RateControllerTest {
+
+    private static final Clock CLOCK = Clock.fixed(
+            LocalDate.of(2026, 3, 1).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    private MockMvc mockMvc;
+    private RateService service;
+
+    @SuppressWarnings("deprecation")
+    @BeforeEach
+    void setUp() {
+        service = Mockito.mock(RateService.class);
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.findAndRegisterModules();
+
+        DefaultFormattingConversionService conversionService = new DefaultFormattingConversionService();
+        conversionService.addConverter(new TreasuryCurrencyConverter());
+        mockMvc = MockMvcBuilders.standaloneSetup(new RateController(service, CLOCK))
+                .setControllerAdvice(new RestExceptionHandler())
+                .setConversionService(conversionService)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
+    @Test
+    void getRate_returnsTheRateForTheDate() throws Exception {
+        RateResponse r = new RateResponse();
+        r.setCurrency("CAD");
+        r.setOn(LocalDate.of(2024, 2, 10));
+        r.setExchangeRate(new BigDecimal("1.325000"));
+        r.setRateEffectiveDate(LocalDate.of(2023, 12, 31));
+        r.setValidThrough(LocalDate.of(2024, 6, 30));
+        r.setRateSource("U.S. Treasury Reporting Rates of Exchange");
+        when(service.getRate(TreasuryCurrency.CANADA_DOLLAR, LocalDate.of(2024, 2, 10))).thenReturn(r);
+
+        mockMvc.perform(get("/rates/{currency}", "CAD").param("on", "2024-02-10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.exchangeRate").value(1.325))
+                .andExpect(jsonPath("$.rateEffectiveDate").value("2023-12-31"))
+                .andExpect(jsonPath("$.validThrough").value("2024-06-30"))
+                .andExpect(jsonPath("$.rateSource").value("U.S. Treasury Reporting Rates of Exchange"))
+                .andExpect(jsonPath("$.stale").doesNotExist())
+                .andExpect(header().doesNotExist("Cache-Control"));
+    }
+
+    @Test
+    void getRate_staleRate_isNotCached() throws Exception {
+        RateResponse r = new RateResponse();
+        r.setCurrency("CAD");
+        r.setExchangeRate(new BigDecimal("1.325000"));
+        r.setRateEffectiveDate(LocalDate.of(2023, 12, 31));
+        r.setStale(true);
+        when(service.getRate(TreasuryCurrency.CANADA_DOLLAR, LocalDate.of(2024, 2, 10))).thenReturn(r);
+
+        mockMvc.perform(get("/rates/{currency}", "CAD").param("on", "2024-02-10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(jsonPath("$.stale").value(true))
+                .andExpect(jsonPath("$.validThrough").doesNotExist());
+    }
+
+    @Test
+    void getRate_withoutDate_usesToday() throws Exception {
+        TreasuryCurrency eur = TreasuryCurrency.fromCode("EUR");
+        when(service.getRate(eur, LocalDate.of(2026, 3, 1))).thenReturn(new RateResponse());
+
+        mockMvc.perform(get("/rates/{currency}", "eur"))
+                .andExpect(status().isOk());
+
+        verify(service).getRate(eur, LocalDate.of(2026, 3, 1));
+    }
+
+    @Test
+    void getRate_unknownCurrency_isBadRequest() throws Exception {
+        mockMvc.perform(get("/rates/{currency}", "XYZ"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value(RestExceptionHandler.CURRENCY_MSG));
+
+        verifyNoInteractions(service);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.purchase.controller;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestSummaryFilterTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger("purchase.requests");
+    private final ListAppender<ILoggingEvent> events = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        events.start();
+        logger.addAppender(events);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(events);
+    }
+
+    @Test
+    void logsOneSummaryPerRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/purchases/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(404);
+
+        new RequestSummaryFilter().doFilter(request, response, new MockFilterChain());
+
+        assertEquals(1, events.list.size());
+        ILoggingEvent event = events.list.getFirst();
+        assertTrue(event.getFormattedMessage().startsWith("GET /purchases/1 404 "));
+        Map<String, Object> fields = event.getKeyValuePairs().stream()
+                .collect(Collectors.toMap(kv -> kv.key, kv -> kv.value == null ? "" : kv.value));
+        assertEquals("GET", fields.get("method"));
+        assertEquals("/purchases/1", fields.get("path"));
+        assertEquals(404, fields.get("status"));
+        assertTrue(fields.containsKey("durationMs"));
+    }
+
+    @Test
+    void skipsActuatorRequests() throws Exception {
+        new RequestSummaryFilter().doFilter(new MockHttpServletRequest("GET", "/actuator/prometheus"),
+                new MockHttpServletResponse(), new MockFilterChain());
+
+        assertTrue(events.list.isEmpty());
+    }
+}
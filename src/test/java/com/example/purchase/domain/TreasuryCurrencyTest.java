@@ -0,0 +1,45 @@
+package com.example.purchase.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TreasuryCurrencyTest {
+
+    @Test
+    void fromCode_ignoresCase() {
+        assertEquals(TreasuryCurrency.CANADA_DOLLAR, TreasuryCurrency.fromCode("CAD"));
+        assertEquals(TreasuryCurrency.CANADA_DOLLAR, TreasuryCurrency.fromCode("cad"));
+        assertEquals(TreasuryCurrency.CANADA_DOLLAR, TreasuryCurrency.fromCode("cAd"));
+    }
+
+    @Test
+    void fromCode_returnsNull_forUnknownOrMalformedCodes() {
+        assertNull(TreasuryCurrency.fromCode(null));
+        assertNull(TreasuryCurrency.fromCode("XXX"));
+        assertNull(TreasuryCurrency.fromCode("CA"));
+        assertNull(TreasuryCurrency.fromCode("CADX"));
+        assertNull(TreasuryCurrency.fromCode("C@D"));
+        assertNull(TreasuryCurrency.fromCode("C[D"));
+        assertNull(TreasuryCurrency.fromCode(" CAD"));
+    }
+
+    @Test
+    void fromCode_sharedCode_returnsTheFirstDeclared_andAllForCodeReturnsEveryOne() {
+        assertEquals(TreasuryCurrency.AUSTRIA_EURO, TreasuryCurrency.fromCode("EUR"));
+        assertEquals(List.of(TreasuryCurrency.AUSTRIA_EURO, TreasuryCurrency.EURO_ZONE_EURO), TreasuryCurrency.allForCode("eur"));
+        assertEquals(List.of(), TreasuryCurrency.allForCode("XXX"));
+    }
+
+    @Test
+    void everyConstant_isFoundByItsCodeAndDescription() {
+        for (TreasuryCurrency c : TreasuryCurrency.values()) {
+            assertTrue(TreasuryCurrency.allForCode(c.getCurrencyCode()).contains(c), c.name());
+            assertEquals(c, TreasuryCurrency.fromDesc(c.getDesc()), c.name());
+            assertEquals(c, TreasuryCurrency.fromDesc(c.getDesc().toUpperCase()), c.name());
+        }
+        assertNull(TreasuryCurrency.fromDesc("Nowhere-Coin"));
+    }
+}
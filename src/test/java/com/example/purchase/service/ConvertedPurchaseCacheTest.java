@@ -0,0 +1,122 @@
+package com.example.purchase.service;
+
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.PurchaseResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConvertedPurchaseCacheTest {
+
+    @Test
+    void invalidate_dropsEveryCurrencyOfThePurchaseOnly() {
+        ConvertedPurchaseCache cache = new ConvertedPurchaseCache(100, Clock.systemDefaultZone(), 30, Duration.ofMinutes(5));
+        PurchaseResponse cad = cache.get(1L, TreasuryCurrency.CANADA_DOLLAR, PurchaseResponse::new);
+        cache.get(1L, TreasuryCurrency.JAPAN_YEN, PurchaseResponse::new);
+        PurchaseResponse other = cache.get(2L, TreasuryCurrency.CANADA_DOLLAR, PurchaseResponse::new);
+
+        cache.invalidate(1L);
+
+        assertNotSame(cad, cache.get(1L, TreasuryCurrency.CANADA_DOLLAR, PurchaseResponse::new));
+        assertSame(other, cache.get(2L, TreasuryCurrency.CANADA_DOLLAR, PurchaseResponse::new));
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(4, cache.stats().missCount());
+    }
+
+    @Test
+    void get_reusesSettledConversions_butExpiresThoseInsideTheSettleWindow() {
+        Clock clock = Clock.fixed(LocalDate.of(2025, 10, 31).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        ConvertedPurchaseCache cache = new ConvertedPurchaseCache(100, clock, 30, Duration.ZERO);
+        PurchaseResponse settled = responseDated(LocalDate.of(2025, 9, 30));
+        PurchaseResponse unsettled = responseDated(LocalDate.of(2025, 10, 1));
+
+        cache.get(1L, TreasuryCurrency.CANADA_DOLLAR, () -> settled);
+        cache.get(2L, TreasuryCurrency.CANADA_DOLLAR, () -> unsettled);
+
+        assertSame(settled, cache.get(1L, TreasuryCurrency.CANADA_DOLLAR, PurchaseResponse::new));
+        assertNotSame(unsettled, cache.get(2L, TreasuryCurrency.CANADA_DOLLAR, PurchaseResponse::new));
+    }
+
+    @Test
+    void get_doesNotCacheStaleConversions() {
+        ConvertedPurchaseCache cache = new ConvertedPurchaseCache(100, Clock.systemDefaultZone(), 30, Duration.ofMinutes(5));
+        PurchaseResponse stale = responseDated(LocalDate.of(2020, 1, 1));
+        stale.setStale(true);
+
+        assertSame(stale, cache.get(1L, TreasuryCurrency.CANADA_DOLLAR, () -> stale));
+        assertNull(cache.getIfPresent(1L, TreasuryCurrency.CANADA_DOLLAR));
+    }
+
+    @Test
+    void bindTo_publishesHitsAndMisses() {
+        ConvertedPurchaseCache cache = new ConvertedPurchaseCache(100, Clock.systemDefaultZone(), 30, Duration.ofMinutes(5));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get(1L, TreasuryCurrency.CANADA_DOLLAR, PurchaseResponse::new);
+        cache.get(1L, TreasuryCurrency.CANADA_DOLLAR, PurchaseResponse::new);
+
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "purchase.responses", "result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "purchase.responses", "result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void get_concurrentMisses_shareOneLoad_andFailuresAreNotCached() throws Exception {
+        ConvertedPurchaseCache cache = new ConvertedPurchaseCache(100, Clock.systemDefaultZone(), 30, Duration.ofMinutes(5));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PurchaseResponse response = new PurchaseResponse();
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<PurchaseResponse> first = pool.submit(() -> cache.get(1L, TreasuryCurrency.CANADA_DOLLAR, () -> {
+                loads.incrementAndGet();
+                entered.countDown();
+                await(release);
+                return response;
+            }));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Future<PurchaseResponse> second = pool.submit(() -> cache.get(1L, TreasuryCurrency.CANADA_DOLLAR, () -> {
+                loads.incrementAndGet();
+                return new PurchaseResponse();
+            }));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertSame(response, first.get(5, TimeUnit.SECONDS));
+            assertSame(response, second.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+
+        assertThrows(IllegalStateException.class, () -> cache.get(2L, TreasuryCurrency.CANADA_DOLLAR, () -> {
+            throw new IllegalStateException("no rate");
+        }));
+        assertSame(response, cache.get(2L, TreasuryCurrency.CANADA_DOLLAR, () -> response));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static PurchaseResponse responseDated(LocalDate transactionDate) {
+        PurchaseResponse response = new PurchaseResponse();
+        response.setTransactionDate(transactionDate);
+        return response;
+    }
+}
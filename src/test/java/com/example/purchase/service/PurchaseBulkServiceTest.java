@@ -0,0 +1,127 @@
+package com.example.purchase.service;
+
+import com.example.purchase.dto.BulkPurchaseResponse;
+import com.example.purchase.entity.Purchase;
+import com.example.purchase.exception.RestExceptionHandler;
+import com.example.purchase.repository.PurchaseDailyTotalRepository;
+import com.example.purchase.repository.PurchaseRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PurchaseBulkServiceTest {
+
+    private PurchaseRepository repo;
+    private PurchaseDailyTotalRepository dailyTotals;
+    private PurchaseBulkService service;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(PurchaseRepository.class);
+        dailyTotals = mock(PurchaseDailyTotalRepository.class);
+        AtomicLong ids = new AtomicLong(100);
+        when(repo.saveAll(anyList())).thenAnswer(inv -> {
+            List<Purchase> purchases = inv.getArgument(0);
+            purchases.forEach(p -> p.setId(ids.incrementAndGet()));
+            return purchases;
+        });
+        service = new PurchaseBulkService(repo, dailyTotals,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                mock(EntityManager.class),
+                mock(PlatformTransactionManager.class),
+                new ObjectMapper().registerModule(new JavaTimeModule()),
+                2);
+    }
+
+    @Test
+    void createPurchases_jsonArray_savesValidRowsInChunks_andReportsInvalidOnes() throws Exception {
+        String json = "["
+                + "{\"description\":\"a\",\"transactionDate\":\"2024-01-01\",\"amountUsd\":1.5},"
+                + "{\"description\":\"\",\"transactionDate\":\"2024-01-01\",\"amountUsd\":1},"
+                + "{\"description\":\"c\",\"transactionDate\":\"01-01-2024\",\"amountUsd\":1},"
+                + "{\"description\":\"d\",\"transactionDate\":\"2024-01-02\",\"amountUsd\":2},"
+                + "{\"description\":\"e\",\"transactionDate\":\"2024-01-03\",\"amountUsd\":3}"
+                + "]";
+
+        BulkPurchaseResponse resp = service.createPurchases(stream(json), false);
+
+        assertEquals(3, resp.getCreated());
+        assertEquals(2, resp.getRejected());
+        assertEquals(101L, resp.getResults().get(0).getId());
+        assertEquals(List.of("description is required"), resp.getResults().get(1).getErrors());
+        assertEquals(List.of(RestExceptionHandler.TRANSACTION_DATE_MSG), resp.getResults().get(2).getErrors());
+        assertEquals(102L, resp.getResults().get(3).getId());
+        assertEquals(103L, resp.getResults().get(4).getId());
+        assertEquals(4, resp.getResults().get(4).getIndex());
+        verify(repo, times(2)).saveAll(anyList());
+        verify(dailyTotals, times(2)).add(anyList());
+    }
+
+    @Test
+    void createPurchases_ndjson_readsOneObjectPerLine() throws Exception {
+        String ndjson = "{\"description\":\"a\",\"transactionDate\":\"2024-01-01\",\"amountUsd\":1}\n"
+                + "{\"description\":\"b\",\"transactionDate\":\"2024-01-01\",\"amountUsd\":-1}\n";
+
+        BulkPurchaseResponse resp = service.createPurchases(stream(ndjson), true);
+
+        assertEquals(1, resp.getCreated());
+        assertEquals(List.of(RestExceptionHandler.AMOUNT_USD_MSG), resp.getResults().get(1).getErrors());
+    }
+
+    @Test
+    void createPurchases_jsonArrayThatBreaksOff_keepsAndReportsTheRowsBefore() throws Exception {
+        String json = "["
+                + "{\"description\":\"a\",\"transactionDate\":\"2024-01-01\",\"amountUsd\":1},"
+                + "{\"description\":\"b\",\"transactionDate\":\"2024-01-01\",\"amountUsd\":2},"
+                + "{\"description\":\"c\",\"transactionDate\":\"2024-01-01\",\"amountUsd\":3},"
+                + "{\"description\":\"d\",\"transactionDate\": oops},"
+                + "{\"description\":\"e\",\"transactionDate\":\"2024-01-01\",\"amountUsd\":5}"
+                + "]";
+
+        BulkPurchaseResponse resp = service.createPurchases(stream(json), false);
+
+        // The first chunk was committed before the error, the pending one is still saved after it
+        assertEquals(3, resp.getCreated());
+        assertEquals(0, resp.getRejected());
+        assertEquals(List.of(101L, 102L, 103L), resp.getResults().stream().map(r -> r.getId()).toList());
+        assertTrue(resp.getError().startsWith("Malformed JSON at line 1"), resp.getError());
+        assertTrue(resp.getError().endsWith("elements from index 3 on were not read"), resp.getError());
+        verify(repo, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void createPurchases_ndjson_rejectsAMalformedLine_andReadsOn() throws Exception {
+        String ndjson = "{\"description\":\"a\",\"transactionDate\":\"2024-01-01\",\"amountUsd\":1}\n"
+                + "{\"description\":\"b\",\"transactionDate\": oops}\n"
+                + "\n"
+                + "{\"description\":\"c\",\"transactionDate\":\"2024-01-01\",\"amountUsd\":3} {}\n"
+                + "{\"description\":\"d\",\"transactionDate\":\"2024-01-01\",\"amountUsd\":4}";
+
+        BulkPurchaseResponse resp = service.createPurchases(stream(ndjson), true);
+
+        assertEquals(2, resp.getCreated());
+        assertEquals(2, resp.getRejected());
+        assertNull(resp.getError());
+        assertEquals(List.of("Malformed JSON"), resp.getResults().get(1).getErrors());
+        assertEquals(List.of("Malformed JSON"), resp.getResults().get(2).getErrors());
+        assertEquals(3, resp.getResults().get(3).getIndex());
+        assertEquals(102L, resp.getResults().get(3).getId());
+    }
+
+    private static ByteArrayInputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
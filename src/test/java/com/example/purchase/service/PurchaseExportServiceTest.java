@@ -0,0 +1,109 @@
+package com.example.purchase.service;
+
+import com.example.purchase.client.TreasuryClient;
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.ExportFormat;
+import com.example.purchase.repository.PurchaseRepository;
+import com.example.purchase.repository.PurchaseView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PurchaseExportServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+    private static final TreasuryCurrency EUR = TreasuryCurrency.fromCode("EUR");
+
+    private PurchaseRepository repo;
+    private TreasuryClient treasuryClient;
+    private PurchaseExportService service;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(PurchaseRepository.class);
+        treasuryClient = mock(TreasuryClient.class);
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonthsAsync(any(), any(), any())).thenCallRealMethod();
+        service = new PurchaseExportService(repo, treasuryClient,
+                new ObjectMapper().registerModule(new JavaTimeModule()),
+                mock(PlatformTransactionManager.class), Runnable::run, 16);
+
+        PurchaseView a = new PurchaseView(1L, "first", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
+        PurchaseView b = new PurchaseView(2L, "second, \"quoted\"", LocalDate.of(2024, 1, 1), new BigDecimal("20.00"));
+        PurchaseView c = new PurchaseView(3L, "third", LocalDate.of(2024, 3, 1), new BigDecimal("30.00"));
+        when(repo.findTransactionDatesBetween(FROM, TO)).thenReturn(List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 1)));
+        when(repo.streamViewsByTransactionDateBetween(FROM, TO)).thenReturn(Stream.of(a, b, c));
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(eq(LocalDate.of(2024, 1, 1)), anyString()))
+                .thenReturn(Optional.of(new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("0.9"))));
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(eq(LocalDate.of(2024, 3, 1)), anyString()))
+                .thenReturn(Optional.empty());
+    }
+
+    @Test
+    void export_ndjson_writesOneLinePerPurchase_andLooksUpEachDateOnce_beforeStreaming() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = service.export(FROM, TO, EUR, ExportFormat.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, rows);
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[0].contains("\"transactionDate\":\"2024-01-01\""));
+        assertTrue(lines[0].contains("\"convertedAmount\":9.00"));
+        assertTrue(lines[2].contains("\"convertedAmount\":null"));
+        verify(treasuryClient, times(2)).findRateOnOrBeforeWithinSixMonths(any(), anyString());
+        InOrder order = inOrder(treasuryClient, repo);
+        order.verify(treasuryClient, times(2)).findRateOnOrBeforeWithinSixMonths(any(), anyString());
+        order.verify(repo).streamViewsByTransactionDateBetween(FROM, TO);
+    }
+
+    @Test
+    void export_purchaseOnADateCreatedAfterTheLookups_isStillConverted() {
+        when(repo.findTransactionDatesBetween(FROM, TO)).thenReturn(List.of(LocalDate.of(2024, 3, 1)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export(FROM, TO, EUR, ExportFormat.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("1,\"first\",2024-01-01,10.00,EUR,0.900000,9.00", lines[1]);
+        verify(treasuryClient, times(2)).findRateOnOrBeforeWithinSixMonths(any(), anyString());
+    }
+
+    @Test
+    void export_usd_looksUpNoRates() {
+        service.export(FROM, TO, TreasuryCurrency.UNITED_STATES_DOLLAR, ExportFormat.CSV, new ByteArrayOutputStream());
+
+        verify(repo, never()).findTransactionDatesBetween(any(), any());
+        verifyNoInteractions(treasuryClient);
+    }
+
+    @Test
+    void export_csv_writesHeaderAndEscapedRows() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export(FROM, TO, EUR, ExportFormat.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("id,description,transactionDate,amountUsd,targetCurrency,exchangeRate,convertedAmount", lines[0]);
+        assertEquals("1,\"first\",2024-01-01,10.00,EUR,0.900000,9.00", lines[1]);
+        assertEquals("2,\"second, \"\"quoted\"\"\",2024-01-01,20.00,EUR,0.900000,18.00", lines[2]);
+        assertEquals("3,\"third\",2024-03-01,30.00,EUR,,", lines[3]);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.purchase.service;
+
+import com.example.purchase.repository.PurchasePartitionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PurchasePartitionServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(
+            LocalDate.of(2025, 11, 20).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    private PurchasePartitionRepository partitions;
+    private PurchasePartitionService service;
+
+    @BeforeEach
+    void setUp() {
+        partitions = mock(PurchasePartitionRepository.class);
+        service = new PurchasePartitionService(partitions, CLOCK, 3);
+    }
+
+    @Test
+    void createPartitions_coversTheCurrentMonthAndTheNextOnes_acrossTheYearEnd() {
+        when(partitions.createPartition(any())).thenReturn(false);
+        when(partitions.createPartition(YearMonth.of(2026, 2))).thenReturn(true);
+
+        assertEquals(1, service.createPartitions());
+
+        verify(partitions).createPartition(YearMonth.of(2025, 11));
+        verify(partitions).createPartition(YearMonth.of(2025, 12));
+        verify(partitions).createPartition(YearMonth.of(2026, 1));
+        verify(partitions).createPartition(YearMonth.of(2026, 2));
+        verifyNoMoreInteractions(partitions);
+    }
+
+    @Test
+    void scheduledCreatePartitions_logsFailures() {
+        when(partitions.createPartition(any())).thenThrow(new IllegalStateException("database down"));
+
+        service.scheduledCreatePartitions();
+
+        verify(partitions).createPartition(YearMonth.of(2025, 11));
+    }
+}
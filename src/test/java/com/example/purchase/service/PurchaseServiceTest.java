@@ -2,19 +2,34 @@ package com.example.purchase.service;
 
 import com.example.purchase.client.TreasuryClient;
 import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.PurchasePage;
 import com.example.purchase.dto.PurchaseRequest;
 import com.example.purchase.dto.PurchaseResponse;
 import com.example.purchase.entity.Purchase;
 import com.example.purchase.exception.ExchangeRateNotFoundException;
+import com.example.purchase.repository.PurchaseCursor;
+import com.example.purchase.repository.PurchaseDailyTotalRepository;
+import com.example.purchase.repository.PurchaseFilter;
 import com.example.purchase.repository.PurchaseRepository;
+import com.example.purchase.repository.PurchaseView;
 import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -23,14 +38,17 @@ import static org.mockito.Mockito.*;
 class PurchaseServiceTest {
 
     private PurchaseRepository repo;
+    private PurchaseDailyTotalRepository dailyTotals;
     private TreasuryClient treasuryClient;
     private PurchaseService service;
 
     @BeforeEach
     void setUp() {
         repo = mock(PurchaseRepository.class);
+        dailyTotals = mock(PurchaseDailyTotalRepository.class);
         treasuryClient = mock(TreasuryClient.class);
-        service = new PurchaseService(repo, treasuryClient);
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonthsAsync(any(), any(), any())).thenCallRealMethod();
+        service = new PurchaseService(repo, dailyTotals, treasuryClient, Runnable::run, 16, new ConvertedPurchaseCache(100, Clock.systemDefaultZone(), 30, Duration.ofMinutes(5)), ObservationRegistry.NOOP);
     }
 
     @Test
@@ -49,13 +67,13 @@ class PurchaseServiceTest {
 
         assertEquals(42L, id);
         verify(repo).save(any(Purchase.class));
+        verify(dailyTotals).add(List.of(saved));
     }
 
     @Test
     void getPurchaseConverted_usd_noConversion() {
-        Purchase p = new Purchase("desc", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
-        p.setId(1L);
-        when(repo.findById(1L)).thenReturn(Optional.of(p));
+        PurchaseView p = new PurchaseView(1L, "desc", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
+        when(repo.findViewById(1L)).thenReturn(Optional.of(p));
 
         PurchaseResponse resp = service.getPurchaseConverted(1L, "USD");
 
@@ -69,9 +87,8 @@ class PurchaseServiceTest {
 
     @Test
     void getPurchaseConverted_otherCurrency_conversionApplied() {
-        Purchase p = new Purchase("desc", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
-        p.setId(2L);
-        when(repo.findById(2L)).thenReturn(Optional.of(p));
+        PurchaseView p = new PurchaseView(2L, "desc", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
+        when(repo.findViewById(2L)).thenReturn(Optional.of(p));
 
         ExchangeRate rate = new ExchangeRate(LocalDate.of(2024, 1, 1), new BigDecimal("1.234567"));
         when(treasuryClient.findRateOnOrBeforeWithinSixMonths(eq(LocalDate.of(2024, 1, 1)), anyString()))
@@ -82,21 +99,197 @@ class PurchaseServiceTest {
         assertEquals("CAD", resp.getTargetCurrency());
         assertEquals(new BigDecimal("1.234567"), resp.getExchangeRate());
         assertEquals(new BigDecimal("12.35"), resp.getConvertedAmount()); // 10.00 * 1.234567 = 12.34567 -> 12.35
+        assertEquals(LocalDate.of(2024, 1, 1), resp.getRateEffectiveDate());
+        assertEquals("U.S. Treasury Reporting Rates of Exchange", resp.getRateSource());
+    }
+
+    @Test
+    void getPurchaseConverted_resolvedCurrency_usesItsTreasuryDescription() {
+        PurchaseView p = new PurchaseView(2L, "desc", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
+        when(repo.findViewById(2L)).thenReturn(Optional.of(p));
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2024, 1, 1), "Euro-Zone-Euro"))
+                .thenReturn(Optional.of(new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("0.9"))));
+
+        PurchaseResponse resp = service.getPurchaseConverted(2L, TreasuryCurrency.EURO_ZONE_EURO);
+
+        assertEquals("EUR", resp.getTargetCurrency());
+        assertEquals(new BigDecimal("9.00"), resp.getConvertedAmount());
+    }
+
+    @Test
+    void getPurchaseConverted_repeatedReads_areServedFromTheCache() {
+        PurchaseView p = new PurchaseView(2L, "desc", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
+        when(repo.findViewById(2L)).thenReturn(Optional.of(p));
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(any(), anyString()))
+                .thenReturn(Optional.of(new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("1.5"))));
+
+        PurchaseResponse first = service.getPurchaseConverted(2L, "CAD");
+        PurchaseResponse second = service.getPurchaseConverted(2L, "cad");
+        service.getPurchaseConverted(2L, "USD");
+
+        assertSame(first, second);
+        verify(repo, times(2)).findViewById(2L);
+        verify(treasuryClient, times(1)).findRateOnOrBeforeWithinSixMonths(any(), anyString());
+    }
+
+    @Test
+    void getPurchaseConverted_missingRate_isNotCached() {
+        PurchaseView p = new PurchaseView(3L, "desc", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
+        when(repo.findViewById(3L)).thenReturn(Optional.of(p));
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(any(), any()))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("1.5"))));
+
+        assertThrows(ExchangeRateNotFoundException.class, () -> service.getPurchaseConverted(3L, "CAD"));
+        assertEquals(new BigDecimal("15.00"), service.getPurchaseConverted(3L, "CAD").getConvertedAmount());
+    }
+
+    @Test
+    void getPurchaseConverted_staleRate_isMarked_andNotCached() {
+        PurchaseView p = new PurchaseView(4L, "desc", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
+        ExchangeRate rate = new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("1.5"));
+        when(repo.findViewById(4L)).thenReturn(Optional.of(p));
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(any(), any()))
+                .thenReturn(Optional.of(rate.asStale()))
+                .thenReturn(Optional.of(rate));
+
+        assertTrue(service.getPurchaseConverted(4L, "CAD").isStale());
+        assertFalse(service.getPurchaseConverted(4L, "CAD").isStale());
+        verify(treasuryClient, times(2)).findRateOnOrBeforeWithinSixMonths(any(), anyString());
     }
 
     @Test
     void getPurchaseConverted_notFound_throws() {
-        when(repo.findById(99L)).thenReturn(Optional.empty());
+        when(repo.findViewById(99L)).thenReturn(Optional.empty());
         assertThrows(NoSuchElementException.class, () -> service.getPurchaseConverted(99L, "USD"));
     }
 
     @Test
     void getPurchaseConverted_noRate_throws() {
-        Purchase p = new Purchase("desc", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
-        p.setId(3L);
-        when(repo.findById(3L)).thenReturn(Optional.of(p));
+        PurchaseView p = new PurchaseView(3L, "desc", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
+        when(repo.findViewById(3L)).thenReturn(Optional.of(p));
         when(treasuryClient.findRateOnOrBeforeWithinSixMonths(any(), any())).thenReturn(Optional.empty());
 
         assertThrows(ExchangeRateNotFoundException.class, () -> service.getPurchaseConverted(3L, "EUR"));
     }
+
+    @Test
+    void convertBatch_looksUpEachDistinctRateOnce() {
+        PurchaseView a = new PurchaseView(1L, "a", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
+        PurchaseView b = new PurchaseView(2L, "b", LocalDate.of(2024, 1, 1), new BigDecimal("20.00"));
+        PurchaseView c = new PurchaseView(3L, "c", LocalDate.of(2024, 2, 1), new BigDecimal("30.00"));
+        when(repo.findViewsByIdIn(any())).thenReturn(List.of(c, a, b));
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(any(), anyString()))
+                .thenReturn(Optional.of(new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("2"))));
+
+        List<PurchaseResponse> resp = service.convertBatch(List.of(1L, 2L, 3L), List.of("cad", "USD"));
+
+        assertEquals(6, resp.size());
+        assertEquals(1L, resp.get(0).getId());
+        assertEquals("CAD", resp.get(0).getTargetCurrency());
+        assertEquals(new BigDecimal("20.00"), resp.get(0).getConvertedAmount());
+        assertEquals("USD", resp.get(1).getTargetCurrency());
+        assertEquals(new BigDecimal("10.00"), resp.get(1).getConvertedAmount());
+        assertEquals(3L, resp.get(4).getId());
+        verify(repo, times(1)).findViewsByIdIn(any());
+        verify(treasuryClient).findRateOnOrBeforeWithinSixMonths(LocalDate.of(2024, 1, 1), TreasuryCurrency.descForCode("CAD"));
+        verify(treasuryClient).findRateOnOrBeforeWithinSixMonths(LocalDate.of(2024, 2, 1), TreasuryCurrency.descForCode("CAD"));
+        verify(treasuryClient, times(2)).findRateOnOrBeforeWithinSixMonthsAsync(any(), anyString(), any());
+        verifyNoMoreInteractions(treasuryClient);
+    }
+
+    @Test
+    void convertBatch_runsDistinctLookupsConcurrently() throws Exception {
+        PurchaseView a = new PurchaseView(1L, "a", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
+        PurchaseView b = new PurchaseView(2L, "b", LocalDate.of(2024, 2, 1), new BigDecimal("20.00"));
+        when(repo.findViewsByIdIn(any())).thenReturn(List.of(a, b));
+        // Each lookup only returns once the other one has started
+        CyclicBarrier bothStarted = new CyclicBarrier(2);
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(any(), anyString())).thenAnswer(inv -> {
+            bothStarted.await(5, TimeUnit.SECONDS);
+            return Optional.of(new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("2")));
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            service = new PurchaseService(repo, dailyTotals, treasuryClient, executor, 16, new ConvertedPurchaseCache(100, Clock.systemDefaultZone(), 30, Duration.ofMinutes(5)), ObservationRegistry.NOOP);
+            List<PurchaseResponse> resp = service.convertBatch(List.of(1L, 2L), List.of("CAD"));
+
+            assertEquals(2, resp.size());
+            assertEquals(new BigDecimal("40.00"), resp.get(1).getConvertedAmount());
+        }
+    }
+
+    @Test
+    void convertBatch_boundsTheLookupsInFlight() {
+        List<PurchaseView> views = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            views.add(new PurchaseView((long) i, "p" + i, LocalDate.of(2024, i, 1), new BigDecimal("10.00")));
+        }
+        when(repo.findViewsByIdIn(any())).thenReturn(views);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(any(), anyString())).thenAnswer(inv -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return Optional.of(new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("2")));
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            service = new PurchaseService(repo, dailyTotals, treasuryClient, executor, 2, new ConvertedPurchaseCache(100, Clock.systemDefaultZone(), 30, Duration.ofMinutes(5)), ObservationRegistry.NOOP);
+            List<PurchaseResponse> resp = service.convertBatch(views.stream().map(PurchaseView::id).toList(), List.of("CAD", "EUR"));
+
+            assertEquals(12, resp.size());
+            assertEquals(2, maxInFlight.get());
+        }
+    }
+
+    @Test
+    void convertBatch_missingPurchase_throws() {
+        when(repo.findViewsByIdIn(any())).thenReturn(List.of());
+        assertThrows(NoSuchElementException.class, () -> service.convertBatch(List.of(7L), List.of("EUR")));
+    }
+
+    @Test
+    void listPurchases_fetchesOneExtraRow_toDecideOnTheNextCursor() {
+        PurchaseFilter filter = new PurchaseFilter(null, null, null, null);
+        PurchaseView a = new PurchaseView(1L, "a", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
+        PurchaseView b = new PurchaseView(2L, "b", LocalDate.of(2024, 1, 2), new BigDecimal("20.00"));
+        PurchaseView c = new PurchaseView(3L, "c", LocalDate.of(2024, 1, 3), new BigDecimal("30.00"));
+        when(repo.findViewsPage(filter, null, 3)).thenReturn(List.of(a, b, c));
+        when(repo.findViewsPage(filter, null, 4)).thenReturn(List.of(a, b, c));
+
+        PurchasePage first = service.listPurchases(filter, null, 2, TreasuryCurrency.UNITED_STATES_DOLLAR);
+        PurchasePage all = service.listPurchases(filter, null, 3, TreasuryCurrency.UNITED_STATES_DOLLAR);
+
+        assertEquals(2, first.getItems().size());
+        assertEquals("USD", first.getItems().get(1).getTargetCurrency());
+        assertEquals(new PurchaseCursor(LocalDate.of(2024, 1, 2), 2L), PurchaseCursor.valueOf(first.getNext()));
+        assertEquals(3, all.getItems().size());
+        assertNull(all.getNext());
+        verifyNoInteractions(treasuryClient);
+    }
+
+    @Test
+    void listPurchases_looksUpEachDateOnce_andListsPurchasesWithoutRateUnconverted() {
+        PurchaseFilter filter = new PurchaseFilter(LocalDate.of(2024, 1, 1), null, null, null);
+        PurchaseCursor after = new PurchaseCursor(LocalDate.of(2023, 12, 31), 9L);
+        PurchaseView a = new PurchaseView(10L, "a", LocalDate.of(2024, 1, 1), new BigDecimal("10.00"));
+        PurchaseView b = new PurchaseView(11L, "b", LocalDate.of(2024, 1, 1), new BigDecimal("20.00"));
+        PurchaseView c = new PurchaseView(12L, "c", LocalDate.of(2024, 2, 1), new BigDecimal("30.00"));
+        when(repo.findViewsPage(filter, after, 11)).thenReturn(List.of(a, b, c));
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2024, 1, 1), TreasuryCurrency.descForCode("CAD")))
+                .thenReturn(Optional.of(new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("2"))));
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2024, 2, 1), TreasuryCurrency.descForCode("CAD")))
+                .thenReturn(Optional.empty());
+
+        PurchasePage page = service.listPurchases(filter, after, 10, TreasuryCurrency.CANADA_DOLLAR);
+
+        assertEquals(3, page.getItems().size());
+        assertNull(page.getNext());
+        assertEquals(new BigDecimal("40.00"), page.getItems().get(1).getConvertedAmount());
+        assertEquals("CAD", page.getItems().get(2).getTargetCurrency());
+        assertNull(page.getItems().get(2).getConvertedAmount());
+        verify(treasuryClient, times(2)).findRateOnOrBeforeWithinSixMonths(any(), anyString());
+    }
 }
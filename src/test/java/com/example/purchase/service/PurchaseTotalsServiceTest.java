@@ -0,0 +1,116 @@
+package com.example.purchase.service;
+
+import com.example.purchase.client.TreasuryClient;
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.DailyTotalResponse;
+import com.example.purchase.exception.InvalidDateRangeException;
+import com.example.purchase.repository.PurchaseDailyTotalRepository;
+import com.example.purchase.repository.PurchaseDailyTotalRepository.DailyTotal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PurchaseTotalsServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+    private static final TreasuryCurrency EUR = TreasuryCurrency.fromCode("EUR");
+    private static final Clock CLOCK = Clock.fixed(
+            LocalDate.of(2025, 3, 10).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    private PurchaseDailyTotalRepository totals;
+    private TreasuryClient treasuryClient;
+    private PurchaseTotalsService service;
+
+    @BeforeEach
+    void setUp() {
+        totals = mock(PurchaseDailyTotalRepository.class);
+        treasuryClient = mock(TreasuryClient.class);
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonthsAsync(any(), any(), any())).thenCallRealMethod();
+        service = new PurchaseTotalsService(totals, treasuryClient, Runnable::run, 16, 366, CLOCK, 7);
+    }
+
+    @Test
+    void dailyTotals_convertEachDayWithItsRate_roundingTheTotalOnce() {
+        when(totals.findBetween(FROM, TO)).thenReturn(List.of(
+                new DailyTotal(LocalDate.of(2024, 1, 2), 3, new BigDecimal("10.01")),
+                new DailyTotal(LocalDate.of(2024, 3, 4), 1, new BigDecimal("5.00"))));
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(eq(LocalDate.of(2024, 1, 2)), anyString()))
+                .thenReturn(Optional.of(new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("0.905"))));
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(eq(LocalDate.of(2024, 3, 4)), anyString()))
+                .thenReturn(Optional.empty());
+
+        List<DailyTotalResponse> days = service.dailyTotals(FROM, TO, EUR);
+
+        assertEquals(2, days.size());
+        DailyTotalResponse first = days.get(0);
+        assertEquals(3, first.getPurchaseCount());
+        assertEquals("EUR", first.getTargetCurrency());
+        assertEquals(new BigDecimal("0.905000"), first.getExchangeRate());
+        assertEquals(new BigDecimal("9.06"), first.getConvertedAmount()); // 10.01 * 0.905 = 9.05905
+        assertEquals(LocalDate.of(2023, 12, 31), first.getRateEffectiveDate());
+        assertEquals("U.S. Treasury Reporting Rates of Exchange", first.getRateSource());
+        assertNull(days.get(1).getExchangeRate());
+        assertNull(days.get(1).getConvertedAmount());
+        assertEquals(new BigDecimal("5.00"), days.get(1).getAmountUsd());
+    }
+
+    @Test
+    void dailyTotals_failedLookup_surfacesItsOwnException() {
+        when(totals.findBetween(FROM, TO)).thenReturn(List.of(new DailyTotal(LocalDate.of(2024, 1, 2), 1, new BigDecimal("5.00"))));
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(any(), anyString()))
+                .thenThrow(new IllegalStateException("rate store unavailable"));
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> service.dailyTotals(FROM, TO, EUR));
+        assertEquals("rate store unavailable", ex.getMessage());
+    }
+
+    @Test
+    void dailyTotals_rejectsReversedAndOverlongRanges_beforeReadingAnything() {
+        assertThrows(InvalidDateRangeException.class, () -> service.dailyTotals(TO, FROM, EUR));
+        assertThrows(InvalidDateRangeException.class,
+                () -> service.dailyTotals(LocalDate.of(2024, 1, 1), LocalDate.of(2025, 1, 1), EUR));
+        // 2024 is a leap year: 366 days, the longest range allowed
+        service.dailyTotals(FROM, TO, EUR);
+
+        verify(totals, times(1)).findBetween(any(), any());
+    }
+
+    @Test
+    void scheduledReconcile_recomputesTheLastDaysUpToToday() {
+        service.scheduledReconcile();
+
+        verify(totals).recompute(LocalDate.of(2025, 3, 4), LocalDate.of(2025, 3, 10));
+    }
+
+    @Test
+    void recompute_rejectsAReversedRange() {
+        assertThrows(InvalidDateRangeException.class, () -> service.recompute(TO, FROM));
+
+        verify(totals, never()).recompute(any(), any());
+    }
+
+    @Test
+    void dailyTotals_usd_needNoRate() {
+        when(totals.findBetween(FROM, TO)).thenReturn(List.of(new DailyTotal(LocalDate.of(2024, 1, 2), 2, new BigDecimal("7.50"))));
+
+        List<DailyTotalResponse> days = service.dailyTotals(FROM, TO, TreasuryCurrency.UNITED_STATES_DOLLAR);
+
+        assertEquals(new BigDecimal("7.50"), days.get(0).getConvertedAmount());
+        assertEquals(BigDecimal.ONE, days.get(0).getExchangeRate());
+        verify(treasuryClient, never()).findRateOnOrBeforeWithinSixMonths(any(), any());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.purchase.service;
+
+import com.example.purchase.client.HttpTreasuryClient;
+import com.example.purchase.client.TreasuryRateRecord;
+import com.example.purchase.repository.TreasuryRateRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class RateIngestionServiceTest {
+
+    private MockRestServiceServer server;
+    private TreasuryRateRepository repository;
+    private RateIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        repository = mock(TreasuryRateRepository.class);
+        when(repository.upsertAll(anyCollection())).thenAnswer(inv -> inv.<List<?>>getArgument(0).size());
+        service = new RateIngestionService(new HttpTreasuryClient(restTemplate, new ObjectMapper(), Runnable::run, CircuitBreaker.ofDefaults("treasury"), ObservationRegistry.NOOP), repository, 2);
+    }
+
+    @Test
+    void ingest_pagesThroughTheWholeDataset_onFirstRun() {
+        when(repository.findWatermark()).thenReturn(Optional.empty(), Optional.of(LocalDate.of(2001, 6, 30)));
+        server.expect(method(HttpMethod.GET))
+                .andExpect(requestTo(allOf(containsString("page%5Bnumber%5D=1"), not(containsString("filter")))))
+                .andRespond(withSuccess(page(2,
+                        row("Canada-Dollar", "1.25", "2001-03-31", "2001-03-31"),
+                        row("Mexico-Peso", "9.6", "2001-03-31", "2001-03-31")), MediaType.APPLICATION_JSON));
+        server.expect(method(HttpMethod.GET))
+                .andExpect(requestTo(containsString("page%5Bnumber%5D=2")))
+                .andRespond(withSuccess(page(2,
+                        row("Canada-Dollar", "1.30", "2001-06-30", "2001-06-30")), MediaType.APPLICATION_JSON));
+
+        int written = service.ingest();
+
+        server.verify();
+        assertEquals(3, written);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TreasuryRateRecord>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(2)).upsertAll(captor.capture());
+        TreasuryRateRecord first = captor.getAllValues().get(0).get(0);
+        assertEquals("Canada-Dollar", first.countryCurrencyDesc());
+        assertEquals(new BigDecimal("1.25"), first.exchangeRate());
+        assertEquals(LocalDate.of(2001, 3, 31), first.effectiveDate());
+        verify(repository).markCompleteThrough(LocalDate.of(2001, 6, 30));
+    }
+
+    @Test
+    void ingest_thatFailsPartway_doesNotAdvanceTheCompleteWatermark() {
+        when(repository.findWatermark()).thenReturn(Optional.of(LocalDate.of(2024, 12, 31)));
+        server.expect(method(HttpMethod.GET))
+                .andExpect(requestTo(containsString("page%5Bnumber%5D=1")))
+                .andRespond(withSuccess(page(2,
+                        row("Canada-Dollar", "1.40", "2025-03-31", "2025-03-31")), MediaType.APPLICATION_JSON));
+        server.expect(method(HttpMethod.GET))
+                .andExpect(requestTo(containsString("page%5Bnumber%5D=2")))
+                .andRespond(withServerError());
+
+        assertThrows(RuntimeException.class, service::ingest);
+
+        verify(repository).upsertAll(anyCollection());
+        verify(repository, never()).markCompleteThrough(any());
+    }
+
+    @Test
+    void ingest_onlyFetchesRecordsSinceTheWatermark_onLaterRuns() {
+        when(repository.findWatermark()).thenReturn(Optional.of(LocalDate.of(2024, 12, 31)));
+        server.expect(method(HttpMethod.GET))
+                .andExpect(requestTo(containsString("record_date:gte:2024-12-31")))
+                .andRespond(withSuccess(page(0), MediaType.APPLICATION_JSON));
+
+        int written = service.ingest();
+
+        server.verify();
+        assertEquals(0, written);
+        verify(repository, never()).upsertAll(anyCollection());
+        verify(repository).markCompleteThrough(LocalDate.of(2024, 12, 31));
+    }
+
+    private static String page(int totalPages, String... rows) {
+        return "{\"data\":[" + String.join(",", rows) + "],\"meta\":{\"total-pages\":" + totalPages + "}}";
+    }
+
+    private static String row(String desc, String rate, String effectiveDate, String recordDate) {
+        return "{\"country_currency_desc\":\"" + desc + "\",\"currency\":\"x\",\"exchange_rate\":\"" + rate
+                + "\",\"effective_date\":\"" + effectiveDate + "\",\"record_date\":\"" + recordDate + "\"}";
+    }
+}
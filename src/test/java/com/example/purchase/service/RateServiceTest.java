@@ -0,0 +1,82 @@
+package com.example.purchase.service;
+
+import com.example.purchase.client.TreasuryClient;
+import com.example.purchase.client.TreasuryClient.ExchangeRate;
+import com.example.purchase.domain.TreasuryCurrency;
+import com.example.purchase.dto.RateResponse;
+import com.example.purchase.exception.ExchangeRateNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RateServiceTest {
+
+    private TreasuryClient treasuryClient;
+    private RateService service;
+
+    @BeforeEach
+    void setUp() {
+        treasuryClient = mock(TreasuryClient.class);
+        service = new RateService(treasuryClient);
+    }
+
+    @Test
+    void getRate_returnsTheRateWithItsEffectiveDateAndSource() {
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2024, 2, 10), "Canada-Dollar"))
+                .thenReturn(Optional.of(new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("1.325"))));
+
+        RateResponse r = service.getRate(TreasuryCurrency.CANADA_DOLLAR, LocalDate.of(2024, 2, 10));
+
+        assertEquals("CAD", r.getCurrency());
+        assertEquals(LocalDate.of(2024, 2, 10), r.getOn());
+        assertEquals(new BigDecimal("1.325000"), r.getExchangeRate());
+        assertEquals(LocalDate.of(2023, 12, 31), r.getRateEffectiveDate());
+        assertEquals(LocalDate.of(2024, 6, 30), r.getValidThrough());
+        assertEquals("U.S. Treasury Reporting Rates of Exchange", r.getRateSource());
+    }
+
+    @Test
+    void getRate_validThrough_isTheLastDateWhoseSixMonthWindowReachesTheRate() {
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2024, 3, 10), "Canada-Dollar"))
+                .thenReturn(Optional.of(new ExchangeRate(LocalDate.of(2024, 2, 29), new BigDecimal("1.35"))));
+
+        RateResponse r = service.getRate(TreasuryCurrency.CANADA_DOLLAR, LocalDate.of(2024, 3, 10));
+
+        // 2024-08-31 minus six months is 2024-02-29, so the rate still covers the end of August
+        assertEquals(LocalDate.of(2024, 8, 31), r.getValidThrough());
+    }
+
+    @Test
+    void getRate_staleRate_isMarkedStale_withoutValidThrough() {
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(LocalDate.of(2024, 2, 10), "Canada-Dollar"))
+                .thenReturn(Optional.of(new ExchangeRate(LocalDate.of(2023, 12, 31), new BigDecimal("1.325")).asStale()));
+
+        RateResponse r = service.getRate(TreasuryCurrency.CANADA_DOLLAR, LocalDate.of(2024, 2, 10));
+
+        assertTrue(r.isStale());
+        assertEquals(LocalDate.of(2023, 12, 31), r.getRateEffectiveDate());
+        assertNull(r.getValidThrough());
+    }
+
+    @Test
+    void getRate_usd_isOne_withoutLookup() {
+        RateResponse r = service.getRate(TreasuryCurrency.UNITED_STATES_DOLLAR, LocalDate.of(2024, 2, 10));
+
+        assertEquals(BigDecimal.ONE, r.getExchangeRate());
+        verifyNoInteractions(treasuryClient);
+    }
+
+    @Test
+    void getRate_noRate_throws() {
+        when(treasuryClient.findRateOnOrBeforeWithinSixMonths(any(), any())).thenReturn(Optional.empty());
+
+        assertThrows(ExchangeRateNotFoundException.class, () -> service.getRate(TreasuryCurrency.fromCode("EUR"), LocalDate.of(2024, 2, 10)));
+    }
+}